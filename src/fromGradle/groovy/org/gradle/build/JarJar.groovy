@@ -18,11 +18,23 @@
 
 package org.gradle.build
 
-import com.tonicsystems.jarjar.Main as JarJarMain
 import org.gradle.api.*
 import org.gradle.api.file.*
 import org.gradle.api.tasks.*
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Applies JarJar rules and keeps to a set of jars. The rules are parsed once and the jars are repackaged in parallel,
+ * using up to {@code maxParallelism} threads. When the task is executed incrementally, only the jars which have changed
+ * are repackaged. Otherwise, any {@code jarjar-*} file in the output directory which no input jar maps to is deleted.
+ */
 class JarJar extends DefaultTask {
     @InputFiles FileCollection inputJars
     @OutputDirectory File outputDir
@@ -30,18 +42,51 @@ class JarJar extends DefaultTask {
     @Input def rules = [:]
     @Input def keeps = []
 
-    @TaskAction
-    void nativeJarJar() {
-        File tempRuleFile = new File(getTemporaryDir(), "jarjar.rules.txt")
-        writeRuleFile(tempRuleFile)
+    int maxParallelism = Runtime.runtime.availableProcessors()
 
+    @TaskAction
+    void nativeJarJar(IncrementalTaskInputs inputs) {
         if (inputJars.empty) {
             throw new GradleException("Unable to execute JarJar task because there are no input jars.");
         }
 
-        for(file in inputJars) {
-            JarJarMain.main("process", tempRuleFile.absolutePath, file.absolutePath, new File(outputDir, "jarjar-$file.name").absolutePath)
+        List<File> changed = []
+        inputs.outOfDate { InputFileDetails details ->
+            changed << details.file
+        }
+        inputs.removed { InputFileDetails details ->
+            project.delete(outputFile(details.file))
         }
+        if (!inputs.incremental) {
+            // Jars removed since the last execution are not reported when it is not incremental
+            Set<File> current = inputJars.files.collect { File inputJar -> outputFile(inputJar) } as Set
+            project.delete(outputDir.listFiles().findAll { File file ->
+                file.name.startsWith("jarjar-") && !current.contains(file)
+            })
+        }
+
+        JarRepackager repackager = new JarRepackager(rules, keeps)
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelism)
+        try {
+            Map<File, Future<?>> results = [:]
+            for (file in changed) {
+                File inputJar = file
+                results[inputJar] = executor.submit({ repackager.repackage(inputJar, outputFile(inputJar)) } as Callable)
+            }
+            results.each { File inputJar, Future<?> result ->
+                try {
+                    result.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Unable to execute JarJar task for $inputJar.", e.cause)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    File outputFile(File inputJar) {
+        return new File(outputDir, "jarjar-$inputJar.name")
     }
 
     void rule(String pattern, String result) {
@@ -51,15 +96,4 @@ class JarJar extends DefaultTask {
     void keep(String pattern) {
         keeps << pattern
     }
-
-    private void writeRuleFile(File ruleFile) {
-        ruleFile.withPrintWriter { writer ->
-            rules.each {pattern, result ->
-                writer.println("rule ${pattern} ${result}")
-            }
-            keeps.each {pattern ->
-                writer.println("keep ${pattern}")
-            }
-        }
-    }
-}
\ No newline at end of file
+}
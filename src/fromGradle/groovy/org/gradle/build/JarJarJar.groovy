@@ -17,7 +17,6 @@
 package org.gradle.build
 
 import org.gradle.api.tasks.bundling.Jar
-import com.tonicsystems.jarjar.Main as JarJarMain
 import org.gradle.api.tasks.Input
 
 /*
@@ -31,29 +30,13 @@ class JarJarJar extends Jar {
         doLast {
             executeJarJar();
         }
-        doLast {
-            fixEmptyFoldersWithJarJar()
-        }
     }
 
+    /**
+     * Repackages the archive in place, dropping the directories which contain no files in the same pass.
+     */
     void executeJarJar() {
-        File tempRuleFile = new File(getTemporaryDir(), "jarjar.rules.txt")
-        writeRuleFile(tempRuleFile)
-        JarJarMain.main("process", tempRuleFile.absolutePath, getArchivePath().absolutePath, getArchivePath().absolutePath)
-    }
-
-    void fixEmptyFoldersWithJarJar() {
-        def withNoEmptyDirs = "${getTemporaryDir()}/withNoEmptyDirs"
-        project.copy{
-            from project.zipTree(getArchivePath().absolutePath)
-            into withNoEmptyDirs
-            includeEmptyDirs = false
-        }
-        project.ant {
-            zip(destfile: getArchivePath(), update: false) {
-                fileset(dir: withNoEmptyDirs)
-            }
-        }
+        new JarRepackager(rules, keeps).repackage(getArchivePath(), getArchivePath())
     }
 
     void rule(String pattern, String result) {
@@ -63,15 +46,4 @@ class JarJarJar extends Jar {
     void keep(String pattern) {
         keeps << pattern
     }
-
-    private void writeRuleFile(File ruleFile) {
-        ruleFile.withPrintWriter { writer ->
-            rules.each {pattern, result ->
-                writer.println("rule ${pattern} ${result}")
-            }
-            keeps.each {pattern ->
-                writer.println("keep ${pattern}")
-            }
-        }
-    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build;
+
+import com.tonicsystems.jarjar.Keep;
+import com.tonicsystems.jarjar.MainProcessor;
+import com.tonicsystems.jarjar.PatternElement;
+import com.tonicsystems.jarjar.Rule;
+import com.tonicsystems.jarjar.util.EntryStruct;
+import com.tonicsystems.jarjar.util.JarProcessor;
+import org.gradle.api.GradleException;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Applies a set of JarJar rules and keeps to jars, in-process.
+ *
+ * <p>Each jar is read and written in a single pass, which also drops the directories that contain no files. When there
+ * are keeps, the classes which are not kept can only be found once the whole jar has been processed, so the jar is
+ * then stripped and copied once more.</p>
+ */
+class JarRepackager {
+    private final List<PatternElement> patterns = new ArrayList<PatternElement>();
+    private final boolean hasKeeps;
+
+    JarRepackager(Map<?, ?> rules, Collection<?> keeps) {
+        for (Map.Entry<?, ?> entry : rules.entrySet()) {
+            Rule rule = new Rule();
+            rule.setPattern(entry.getKey().toString());
+            rule.setResult(entry.getValue().toString());
+            patterns.add(rule);
+        }
+        for (Object pattern : keeps) {
+            Keep keep = new Keep();
+            keep.setPattern(pattern.toString());
+            patterns.add(keep);
+        }
+        hasKeeps = !keeps.isEmpty();
+    }
+
+    /**
+     * Repackages the given jar into the given file. The output may be the same file as the input.
+     */
+    void repackage(File inputJar, File outputJar) throws IOException {
+        // The processor holds per-jar state, such as the classes seen by the keeps, so is not shared
+        MainProcessor processor = new MainProcessor(patterns, false, false);
+        File tempFile = File.createTempFile("jarjar", ".jar", outputJar.getAbsoluteFile().getParentFile());
+        try {
+            copy(inputJar, tempFile, processor);
+            if (hasKeeps) {
+                processor.strip(tempFile);
+                File strippedFile = File.createTempFile("jarjar", ".jar", tempFile.getParentFile());
+                try {
+                    copy(tempFile, strippedFile, null);
+                } catch (IOException e) {
+                    strippedFile.delete();
+                    throw e;
+                }
+                tempFile.delete();
+                tempFile = strippedFile;
+            }
+            if (outputJar.exists() && !outputJar.delete() || !tempFile.renameTo(outputJar)) {
+                throw new IOException(String.format("Could not replace %s.", outputJar));
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Copies the files of the given jar, passing each of them through the given processor. Only the directories which
+     * contain at least one file are written.
+     */
+    private static void copy(File inputJar, File outputJar, JarProcessor processor) throws IOException {
+        ZipFile input = new ZipFile(inputJar);
+        try {
+            ZipOutputStream output = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outputJar)));
+            try {
+                Set<String> written = new HashSet<String>();
+                byte[] buffer = new byte[0x2000];
+                EntryStruct struct = new EntryStruct();
+                Enumeration<? extends ZipEntry> entries = input.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory()) {
+                        continue;
+                    }
+                    struct.name = entry.getName();
+                    struct.time = entry.getTime();
+                    struct.data = read(input, entry, buffer);
+                    if (processor != null && !processor.process(struct)) {
+                        continue;
+                    }
+                    if (!written.add(struct.name)) {
+                        throw new GradleException(String.format("Duplicate entry '%s' in %s.", struct.name, inputJar));
+                    }
+                    writeParentDirectories(output, struct.name, struct.time, written);
+                    ZipEntry outputEntry = new ZipEntry(struct.name);
+                    outputEntry.setTime(struct.time);
+                    output.putNextEntry(outputEntry);
+                    output.write(struct.data);
+                    output.closeEntry();
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void writeParentDirectories(ZipOutputStream output, String name, long time, Set<String> written) throws IOException {
+        int end = name.lastIndexOf('/');
+        if (end < 0) {
+            return;
+        }
+        String directory = name.substring(0, end + 1);
+        if (written.contains(directory)) {
+            return;
+        }
+        writeParentDirectories(output, directory.substring(0, end), time, written);
+        written.add(directory);
+        ZipEntry entry = new ZipEntry(directory);
+        entry.setTime(time);
+        output.putNextEntry(entry);
+        output.closeEntry();
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry entry, byte[] buffer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : buffer.length);
+        InputStream inputStream = zipFile.getInputStream(entry);
+        try {
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                bytes.write(buffer, 0, count);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -15,106 +15,259 @@
  */
 package org.gradle.build.docs
 
-import groovy.xml.DOMBuilder
+import org.gradle.api.GradleException
 import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.tasks.SourceTask
 import org.gradle.api.tasks.TaskAction
-import org.w3c.dom.Document
-import javax.xml.parsers.DocumentBuilderFactory
-import org.w3c.dom.Element
-import groovy.xml.dom.DOMCategory
 import org.gradle.api.tasks.OutputFile
-import groovy.xml.XmlUtil
+
+import javax.xml.stream.XMLEventFactory
+import javax.xml.stream.XMLEventReader
+import javax.xml.stream.XMLEventWriter
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLOutputFactory
+import javax.xml.stream.XMLStreamException
+import javax.xml.stream.events.XMLEvent
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 /**
  * Generates a chapter containing a summary of the readme files for the samples.
+ *
+ * The readme files are read twice. The first pass, which runs in parallel using up to {@code maxParallelism} threads,
+ * reads only as far as the first paragraph of each readme. The second pass copies the body of each readme into the
+ * chapter, one readme at a time, so that no more than one readme is held in memory.
  */
 class AssembleSamplesDocTask extends SourceTask {
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance()
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance()
+
     @OutputFile
     File destFile
 
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
     @TaskAction
     def generate() {
-        List samples = []
-        use(DOMCategory) {
+        // Collect up the source sample.xml files
+        Map<File, String> sources = [:]
+        source.visit {FileVisitDetails fvd ->
+            if (fvd.isDirectory()) {
+                return
+            }
+            sources[fvd.file] = fvd.relativePath.parent as String
+        }
 
-            // Collect up the source sample.xml files
-            source.visit {FileVisitDetails fvd ->
-                if (fvd.isDirectory()) {
-                    return
+        List<Sample> samples = []
+        // The readers are created on several threads, and an input factory may reuse them, so each thread of this
+        // execution has its own factory. The threads, and so their factories, are discarded along with the pool
+        ThreadLocal<XMLInputFactory> inputFactories = new ThreadLocal<XMLInputFactory>()
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelism)
+        try {
+            Map<File, Future<Sample>> summaries = [:]
+            sources.each { File file, String dir ->
+                summaries[file] = executor.submit({ summarize(file, dir, inputFactories) } as Callable<Sample>)
+            }
+            summaries.each { File file, Future<Sample> summary ->
+                try {
+                    samples << summary.get()
+                } catch (ExecutionException e) {
+                    throw e.cause
                 }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
 
-                Element sourceDoc;
-                fvd.file.withReader {Reader reader ->
-                    sourceDoc = DOMBuilder.parse(reader).documentElement
-                }
+        samples = samples.sort { it.dir }
+
+        destFile.withOutputStream {OutputStream stream ->
+            XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(stream, "UTF-8")
+            try {
+                writeAppendix(writer, samples, XMLInputFactory.newInstance())
+            } finally {
+                writer.close()
+            }
+        }
+    }
 
-                Element firstPara = sourceDoc.para[0]
-                if (!firstPara) {
-                    throw new RuntimeException("Source file $fvd.file does not contain any <para> elements.")
+    /**
+     * Reads the given readme as far as is needed to find its first paragraph and whether it contains anything else.
+     */
+    Sample summarize(File file, String dir, ThreadLocal<XMLInputFactory> inputFactories) {
+        Sample sample = new Sample(file: file, dir: dir)
+        int childElements = 0
+        InputStream stream = new BufferedInputStream(new FileInputStream(file))
+        try {
+            XMLEventReader reader = inputFactory(inputFactories).createXMLEventReader(file.toURI().toString(), stream)
+            int depth = 0
+            while (reader.hasNext() && (sample.firstPara == null || childElements <= 1)) {
+                XMLEvent event = reader.nextEvent()
+                if (event.isStartElement()) {
+                    depth++
+                    if (depth == 2) {
+                        childElements++
+                        if (sample.firstPara == null && event.asStartElement().name.localPart == 'para') {
+                            sample.firstPara = readElement(event, reader)
+                            depth--
+                        }
+                    }
+                } else if (event.isEndElement()) {
+                    depth--
                 }
-                samples << [
-                        dir: fvd.relativePath.parent as String,
-                        firstPara: firstPara,
-                        doc: sourceDoc,
-                        include: sourceDoc['*'].size() > 1
-                ]
             }
+            reader.close()
+        } catch (XMLStreamException e) {
+            throw new GradleException("Could not read sample file $file.", e)
+        } finally {
+            stream.close()
+        }
+        if (sample.firstPara == null) {
+            throw new RuntimeException("Source file $file does not contain any <para> elements.")
+        }
+        sample.include = childElements > 1
+        return sample
+    }
 
-            samples = samples.sort { it.dir }
+    private static List<XMLEvent> readElement(XMLEvent start, XMLEventReader reader) {
+        List<XMLEvent> events = [start]
+        int depth = 1
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent()
+            if (event.isStartElement()) {
+                depth++
+            } else if (event.isEndElement()) {
+                depth--
+            }
+            events << event
+        }
+        return events
+    }
 
-            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+    private void writeAppendix(XMLEventWriter writer, List<Sample> samples, XMLInputFactory inputFactory) {
+        writer.add(EVENT_FACTORY.createStartDocument("UTF-8", "1.0"))
+        start(writer, 'appendix', [id: 'sample_list'])
+        element(writer, 'title', 'Gradle Samples')
+        start(writer, 'para')
+        text(writer, 'Listed below are some of the stand-alone samples which are included in the Gradle distribution. ')
+        text(writer, 'You can find these samples in the ')
+        start(writer, 'filename')
+        element(writer, 'replaceable', 'GRADLE_HOME')
+        text(writer, '/samples')
+        end(writer, 'filename')
+        text(writer, ' directory of the distribution.')
+        end(writer, 'para')
 
-            DomBuilder builder = new DomBuilder(doc)
-            builder.appendix(id: 'sample_list') {
-                title('Gradle Samples')
-                para {
-                    text('Listed below are some of the stand-alone samples which are included in the Gradle distribution. ')
-                    text('You can find these samples in the ')
-                    filename {
-                        replaceable('GRADLE_HOME')
-                        text('/samples')
-                    }
-                    text(' directory of the distribution.')
-                }
-                table {
-                    title('Samples included in the distribution')
-                    thead {
-                        td('Sample')
-                        td('Description')
-                    }
-                    samples.each {sample ->
-                        tr {
-                            td {
-                                if (sample.include) {
-                                    link(linkend: sample.hashCode()) { filename(sample.dir) }
-                                } else {
-                                    filename(sample.dir)
-                                }
-                            }
-                            td(sample.firstPara)
-                        }
+        start(writer, 'table')
+        element(writer, 'title', 'Samples included in the distribution')
+        start(writer, 'thead')
+        element(writer, 'td', 'Sample')
+        element(writer, 'td', 'Description')
+        end(writer, 'thead')
+        for (Sample sample : samples) {
+            start(writer, 'tr')
+            start(writer, 'td')
+            if (sample.include) {
+                start(writer, 'link', [linkend: sample.hashCode()])
+                element(writer, 'filename', sample.dir)
+                end(writer, 'link')
+            } else {
+                element(writer, 'filename', sample.dir)
+            }
+            end(writer, 'td')
+            start(writer, 'td')
+            for (XMLEvent event : sample.firstPara) {
+                writer.add(event)
+            }
+            end(writer, 'td')
+            end(writer, 'tr')
+        }
+        end(writer, 'table')
+
+        for (Sample sample : samples) {
+            if (!sample.include) {
+                continue
+            }
+            start(writer, 'section', [id: sample.hashCode()])
+            start(writer, 'title')
+            text(writer, 'Sample ')
+            element(writer, 'filename', sample.dir)
+            end(writer, 'title')
+            copyBody(writer, inputFactory, sample.file)
+            end(writer, 'section')
+        }
+
+        end(writer, 'appendix')
+        writer.add(EVENT_FACTORY.createEndDocument())
+    }
+
+    /**
+     * Copies the content of the root element of the given readme.
+     */
+    private static void copyBody(XMLEventWriter writer, XMLInputFactory inputFactory, File file) {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file))
+        try {
+            XMLEventReader reader = inputFactory.createXMLEventReader(file.toURI().toString(), stream)
+            int depth = 0
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent()
+                if (event.isStartElement()) {
+                    depth++
+                    if (depth == 1) {
+                        continue
                     }
+                } else if (event.isEndElement()) {
+                    depth--
                 }
-                samples.each {sample ->
-                    if (!sample.include) {
-                        return
-                    }
-                    section(id: sample.hashCode()) {
-                        title {
-                            text('Sample ')
-                            filename(sample.dir)
-                        }
-                        sample.doc.childNodes.each {n ->
-                            appendChild n
-                        }
-                    }
+                if (depth > 0) {
+                    writer.add(event)
                 }
             }
+            reader.close()
+        } catch (XMLStreamException e) {
+            throw new GradleException("Could not read sample file $file.", e)
+        } finally {
+            stream.close()
+        }
+    }
 
-            destFile.withOutputStream {OutputStream stream ->
-                XmlUtil.serialize(doc.documentElement, stream)
-            }
+    private static XMLInputFactory inputFactory(ThreadLocal<XMLInputFactory> inputFactories) {
+        XMLInputFactory factory = inputFactories.get()
+        if (factory == null) {
+            factory = XMLInputFactory.newInstance()
+            inputFactories.set(factory)
         }
+        return factory
+    }
+
+    private static void start(XMLEventWriter writer, String name, Map<String, ?> attributes = [:]) {
+        writer.add(EVENT_FACTORY.createStartElement('', '', name))
+        attributes.each { key, value ->
+            writer.add(EVENT_FACTORY.createAttribute(key, value as String))
+        }
+    }
+
+    private static void end(XMLEventWriter writer, String name) {
+        writer.add(EVENT_FACTORY.createEndElement('', '', name))
+    }
+
+    private static void text(XMLEventWriter writer, String content) {
+        writer.add(EVENT_FACTORY.createCharacters(content))
+    }
+
+    private static void element(XMLEventWriter writer, String name, String content) {
+        start(writer, name)
+        text(writer, content)
+        end(writer, name)
+    }
+
+    private static class Sample {
+        File file
+        String dir
+        List<XMLEvent> firstPara
+        boolean include
     }
 }
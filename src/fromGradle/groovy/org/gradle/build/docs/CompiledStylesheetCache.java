@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.GradleException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the stylesheets compiled by {@link Docbook2Xhtml} for the life of the build process, so that a later build only
+ * compiles a stylesheet again when the files of its stylesheet directory or the transformer classpath, and so the
+ * Xalan version, have changed. A file is taken to have changed when its path, length or modification time has
+ * changed, so the files are not read to check them. The compiled stylesheets are only kept in memory, as the compiled
+ * Templates of interpretive Xalan, which docbook's extensions need, cannot be written to disk.
+ *
+ * <p>Each stylesheet is compiled by an {@link XslTransformer} loaded in its own class loader, isolated from the build.
+ * The users of each compiled stylesheet are counted, and the class loader of a stylesheet which has been compiled
+ * again is closed once its last user has released it.</p>
+ */
+class CompiledStylesheetCache {
+    private static final Map<File, CompiledStylesheet> STYLESHEETS = new HashMap<File, CompiledStylesheet>();
+
+    private CompiledStylesheetCache() {
+    }
+
+    /**
+     * Returns the given stylesheet, compiling it if the cached copy is missing or out of date. The caller must
+     * {@link #release(CompiledStylesheet)} the stylesheet once it has finished using it.
+     */
+    static synchronized CompiledStylesheet acquire(File stylesheet, File stylesheetsDir, List<File> classpath) {
+        String key = hash(stylesheetsDir, classpath);
+        File location = stylesheet.getAbsoluteFile();
+        CompiledStylesheet compiled = STYLESHEETS.get(location);
+        if (compiled == null || !compiled.key.equals(key)) {
+            if (compiled != null) {
+                compiled.outOfDate = true;
+                closeIfUnused(compiled);
+            }
+            compiled = compile(stylesheet, classpath, key);
+            STYLESHEETS.put(location, compiled);
+        }
+        compiled.users++;
+        return compiled;
+    }
+
+    static synchronized void release(CompiledStylesheet compiled) {
+        compiled.users--;
+        closeIfUnused(compiled);
+    }
+
+    private static void closeIfUnused(CompiledStylesheet compiled) {
+        if (!compiled.outOfDate || compiled.users > 0 || !(compiled.classLoader instanceof Closeable)) {
+            return;
+        }
+        try {
+            ((Closeable) compiled.classLoader).close();
+        } catch (IOException e) {
+            throw new GradleException("Could not close stylesheet class loader.", e);
+        }
+    }
+
+    private static CompiledStylesheet compile(File stylesheet, List<File> classpath, String key) {
+        URL[] urls = new URL[classpath.size()];
+        try {
+            for (int i = 0; i < urls.length; i++) {
+                urls[i] = classpath.get(i).toURI().toURL();
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not create class loader for stylesheet %s.", stylesheet), e);
+        }
+        ClassLoader classLoader = new URLClassLoader(urls, null);
+
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            Object transformer = classLoader.loadClass(XslTransformer.class.getName()).getConstructor(File.class).newInstance(stylesheet);
+            return new CompiledStylesheet(key, classLoader, transformer);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not compile stylesheet %s.", stylesheet), e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * Hashes the paths, lengths and modification times of the files in the given directory, and of the given
+     * classpath.
+     */
+    private static String hash(File stylesheetsDir, List<File> classpath) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hashTree(hasher, stylesheetsDir, "");
+        for (File file : classpath) {
+            hasher.putString(file.getAbsolutePath(), Charsets.UTF_8);
+            if (file.isDirectory()) {
+                hashTree(hasher, file, "");
+            } else {
+                hashFile(hasher, file);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void hashTree(Hasher hasher, File dir, String path) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String relativePath = path + "/" + file.getName();
+            hasher.putString(relativePath, Charsets.UTF_8);
+            if (file.isDirectory()) {
+                hashTree(hasher, file, relativePath);
+            } else {
+                hashFile(hasher, file);
+            }
+        }
+    }
+
+    private static void hashFile(Hasher hasher, File file) {
+        hasher.putLong(file.length());
+        hasher.putLong(file.lastModified());
+    }
+
+    static class CompiledStylesheet {
+        final String key;
+        final ClassLoader classLoader;
+        final Object transformer;
+        private int users;
+        private boolean outOfDate;
+
+        CompiledStylesheet(String key, ClassLoader classLoader, Object transformer) {
+            this.key = key;
+            this.classLoader = classLoader;
+            this.transformer = transformer;
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.gradle.build.docs
 
+import org.gradle.api.GradleException
+import org.gradle.build.docs.CompiledStylesheetCache.CompiledStylesheet
 import org.gradle.api.InvalidUserDataException
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileVisitDetails
@@ -22,6 +24,19 @@ import org.gradle.internal.classloader.ClasspathUtil
 import org.gradle.api.tasks.*
 import org.gradle.api.logging.LogLevel
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Transforms docbook sources into XHTML.
+ *
+ * The stylesheet is compiled in a class loader isolated from the build which contains the transformer
+ * {@code classpath}, and is reused by later executions in the same process until the stylesheets or the classpath
+ * change. The sources are transformed in parallel using up to {@code maxParallelism} threads.
+ */
 class Docbook2Xhtml extends SourceTask {
     @InputFiles
     FileCollection classpath
@@ -40,6 +55,8 @@ class Docbook2Xhtml extends SourceTask {
     @InputFiles @Optional
     FileCollection resources
 
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
     @TaskAction
     def transform() {
         if (!((destFile != null) ^ (destDir != null))) {
@@ -49,6 +66,7 @@ class Docbook2Xhtml extends SourceTask {
         logging.captureStandardOutput(LogLevel.INFO)
         logging.captureStandardError(LogLevel.INFO)
 
+        Map<File, File> results = [:]
         source.visit { FileVisitDetails fvd ->
             if (fvd.isDirectory()) {
                 return
@@ -62,21 +80,11 @@ class Docbook2Xhtml extends SourceTask {
                 outFile.parentFile.mkdirs()
                 result = outFile
             }
-            project.javaexec {
-                main = XslTransformer.name
-                args new File(stylesheetsDir, stylesheetName).absolutePath
-                args fvd.file.absolutePath
-                args result.absolutePath
-                args destDir ?: ""
-                jvmArgs '-Xmx256m'
-                classpath ClasspathUtil.getClasspathForClass(XslTransformer)
-                classpath this.classpath
-                classpath new File(stylesheetsDir, 'extensions/xalan27.jar')
-                systemProperty 'xslthl.config', new File("$stylesheetsDir/highlighting/xslthl-config.xml").toURI()
-                systemProperty 'org.apache.xerces.xni.parser.XMLParserConfiguration', 'org.apache.xerces.parsers.XIncludeParserConfiguration'
-            }
+            results[fvd.file] = result
         }
 
+        transformAll(results)
+
         if (resources) {
             project.copy {
                 into this.destDir ?: destFile.parentFile
@@ -84,4 +92,57 @@ class Docbook2Xhtml extends SourceTask {
             }
         }
     }
+
+    void transformAll(Map<File, File> results) {
+        List<File> transformerClasspath = [ClasspathUtil.getClasspathForClass(XslTransformer)]
+        transformerClasspath.addAll(classpath.files)
+        transformerClasspath << new File(stylesheetsDir, 'extensions/xalan27.jar')
+
+        // These were passed to the forked transformer process as system properties. The transformer resolves XIncludes
+        // itself, and the highlighting configuration is passed as a stylesheet parameter
+        Map<String, String> parameters = [
+                'highlight.xslthl.config': new File("$stylesheetsDir/highlighting/xslthl-config.xml").toURI().toString()
+        ]
+        if (destDir) {
+            parameters['base.dir'] = destDir.path + '/'
+        }
+
+        // Every source is written to the same file when there is a single destination file, so keep the last one
+        CompiledStylesheet stylesheet = CompiledStylesheetCache.acquire(new File(stylesheetsDir, stylesheetName), stylesheetsDir, transformerClasspath)
+        ExecutorService executor = Executors.newFixedThreadPool(destFile ? 1 : maxParallelism)
+        try {
+            ClassLoader classLoader = stylesheet.classLoader
+            def transformer = stylesheet.transformer
+            Map<File, Future<?>> transforms = [:]
+            results.each { File source, File result ->
+                transforms[source] = executor.submit({
+                    withContextClassLoader(classLoader) {
+                        logger.info("Transforming {} to {}.", source, result)
+                        transformer.transform(source, result, parameters)
+                    }
+                } as Callable)
+            }
+            transforms.each { File source, Future<?> transform ->
+                try {
+                    transform.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Could not transform $source.", e.cause)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+            CompiledStylesheetCache.release(stylesheet)
+        }
+    }
+
+    def withContextClassLoader(ClassLoader classLoader, Closure action) {
+        Thread thread = Thread.currentThread()
+        ClassLoader previous = thread.contextClassLoader
+        thread.contextClassLoader = classLoader
+        try {
+            return action.call()
+        } finally {
+            thread.contextClassLoader = previous
+        }
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a set of element handlers to a document in a single depth-first traversal.
+ *
+ * <p>A handler is registered for an element name, such as {@code sample}, or for an attribute, such as
+ * {@code @condition}. The handlers for an element are applied in the order they were registered. A handler may replace
+ * or remove the element it is given, in which case the remaining handlers are applied to the replacement, and the
+ * traversal continues into the replacement's children.</p>
+ *
+ * <p>A handler may instead be registered to run after the element's children have been visited, for a transform which
+ * uses the content of the element as the other handlers leave it. These handlers are applied in the order they were
+ * registered, after all of the handlers which run before the children.</p>
+ *
+ * <p>A handler may also be restricted to elements at a given depth of the document, where the root element is at
+ * depth 0.</p>
+ */
+public class ElementTransformPipeline {
+    private final List<Registration> handlers = new ArrayList<Registration>();
+
+    public interface ElementHandler {
+        /**
+         * Handles the given element.
+         *
+         * @return The element which replaces the given element, which may be the given element itself, or null if the
+         * element has been removed from the document.
+         */
+        Element handle(Element element);
+    }
+
+    /**
+     * Registers a handler for the given element name, or for elements with the given attribute if the selector starts
+     * with '@'.
+     */
+    public ElementTransformPipeline add(String selector, ElementHandler handler) {
+        return add(selector, -1, handler);
+    }
+
+    /**
+     * Registers a handler for the elements at the given depth which match the given selector.
+     */
+    public ElementTransformPipeline add(String selector, int depth, ElementHandler handler) {
+        handlers.add(new Registration(selector, depth, false, handler));
+        return this;
+    }
+
+    /**
+     * Registers a handler for the elements which match the given selector, which is applied once the children of the
+     * element have been visited.
+     */
+    public ElementTransformPipeline addAfterChildren(String selector, ElementHandler handler) {
+        handlers.add(new Registration(selector, -1, true, handler));
+        return this;
+    }
+
+    /**
+     * Applies the handlers to the given root element and its descendants.
+     */
+    public void transform(Element root) {
+        transform(root, 0);
+    }
+
+    /**
+     * Applies the handlers to the given element, which is at the given depth of its document, and its descendants.
+     */
+    public void transform(Element element, int depth) {
+        visit(element, depth);
+    }
+
+    /**
+     * Returns true if any handler is registered for the given element, which is at the given depth of its document.
+     * Does not look at the element's children.
+     */
+    public boolean accepts(Element element, int depth) {
+        for (Registration registration : handlers) {
+            if (registration.accepts(element, depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void visit(Element element, int depth) {
+        Element current = element;
+        for (Registration registration : handlers) {
+            if (!registration.afterChildren && registration.accepts(current, depth)) {
+                current = registration.handler.handle(current);
+                if (current == null) {
+                    return;
+                }
+            }
+        }
+
+        Node child = current.getFirstChild();
+        while (child != null) {
+            // The handlers may replace or remove the child, so find the next sibling first
+            Node next = child.getNextSibling();
+            if (child instanceof Element) {
+                visit((Element) child, depth + 1);
+            }
+            child = next;
+        }
+
+        for (Registration registration : handlers) {
+            if (registration.afterChildren && registration.accepts(current, depth)) {
+                current = registration.handler.handle(current);
+                if (current == null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Registration {
+        final String elementName;
+        final String attributeName;
+        final int depth;
+        final boolean afterChildren;
+        final ElementHandler handler;
+
+        Registration(String selector, int depth, boolean afterChildren, ElementHandler handler) {
+            if (selector.startsWith("@")) {
+                this.elementName = null;
+                this.attributeName = selector.substring(1);
+            } else {
+                this.elementName = selector;
+                this.attributeName = null;
+            }
+            this.depth = depth;
+            this.afterChildren = afterChildren;
+            this.handler = handler;
+        }
+
+        boolean accepts(Element element, int elementDepth) {
+            if (depth >= 0 && depth != elementDepth) {
+                return false;
+            }
+            if (attributeName != null) {
+                return element.getAttribute(attributeName).length() > 0;
+            }
+            return element.getNodeName().equals(elementName);
+        }
+    }
+}
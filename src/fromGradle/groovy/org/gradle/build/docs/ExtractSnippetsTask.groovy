@@ -15,24 +15,56 @@
  */
 package org.gradle.build.docs
 
+import java.nio.channels.FileChannel
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import java.util.regex.Matcher
 import java.util.regex.Pattern
+import org.gradle.api.GradleException
 import org.gradle.api.tasks.TaskAction
 import org.gradle.api.tasks.SourceTask
 import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.api.file.FileVisitDetails
 
 /**
  * Produces the snippets files for a set of sample source files.
+ *
+ * The source files are processed in parallel, using up to {@code maxParallelism} threads. When the task is executed
+ * incrementally, only the source files which have changed are processed. The files written for each source file are
+ * recorded, so that they can be deleted before the source file is processed again, or once it has been removed.
  */
 public class ExtractSnippetsTask extends SourceTask {
+    private static final Pattern XML_START_SNIPPET = Pattern.compile('\\s*<!--\\s*START\\s+SNIPPET\\s+(\\S+)\\s*-->')
+    private static final Pattern XML_END_SNIPPET = Pattern.compile('\\s*<!--\\s*END\\s+SNIPPET\\s+(\\S+)\\s*-->')
+    private static final Pattern START_SNIPPET = Pattern.compile('\\s*//\\s*START\\s+SNIPPET\\s+(\\S+)\\s*')
+    private static final Pattern END_SNIPPET = Pattern.compile('\\s*//\\s*END\\s+SNIPPET\\s+(\\S+)\\s*')
+
     @OutputDirectory
     File destDir
     @OutputDirectory
     File snippetsDir
 
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
     @TaskAction
-    def extract() {
+    def extract(IncrementalTaskInputs inputs) {
+        Map<File, List<File>> outputs = readOutputs()
+        Set<File> changed = new HashSet<File>()
+        inputs.outOfDate { InputFileDetails details ->
+            changed << details.file
+        }
+        inputs.removed { InputFileDetails details ->
+            deleteOutputs(outputs.remove(details.file))
+        }
+        boolean extractAll = !inputs.incremental
+
+        Map<File, String> sources = [:]
+        Set<File> current = new HashSet<File>()
         source.visit { FileVisitDetails details ->
             String name = details.relativePath.pathString
             if (details.file.isDirectory()) {
@@ -40,64 +72,153 @@ public class ExtractSnippetsTask extends SourceTask {
                 destDir.mkdirs()
                 destDir = new File(snippetsDir, name)
                 destDir.mkdirs()
+            } else {
+                current << details.file
+                if (extractAll || changed.contains(details.file)) {
+                    sources[details.file] = name
+                }
             }
-            else {
-                File srcFile = details.file
-                File destFile = new File(destDir, name)
-
-                destFile.parentFile.mkdirs()
+        }
+        if (extractAll) {
+            // Sources removed since the outputs were recorded are not reported to a non-incremental execution
+            outputs.keySet().findAll { !current.contains(it) }.each { File srcFile ->
+                deleteOutputs(outputs.remove(srcFile))
+            }
+        }
 
-                if (['.jar', '.zip', '.gpg'].find{ name.endsWith(it) }) {
-                    destFile.withOutputStream { it.write(srcFile.readBytes()) }
-                    return
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelism)
+        try {
+            Map<String, Future<?>> extractions = [:]
+            sources.each { File srcFile, String name ->
+                // A source may no longer contain all of the snippets it used to
+                deleteOutputs(outputs.remove(srcFile))
+                List<File> srcOutputs = Collections.synchronizedList(new ArrayList<File>())
+                outputs[srcFile] = srcOutputs
+                extractions[name] = executor.submit({ extract(srcFile, name, srcOutputs) } as Callable)
+            }
+            extractions.each { String name, Future<?> extraction ->
+                try {
+                    extraction.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Could not extract snippets from $name.", e.cause)
                 }
+            }
+        } finally {
+            executor.shutdownNow()
+            writeOutputs(outputs)
+        }
+    }
 
-                Map writers = [
-                        0: new SnippetWriter(name, destFile).start(),
-                        1: new SnippetWriter(name, new File(snippetsDir, name)).start()
-                ]
-                Pattern startSnippetPattern
-                Pattern endSnippetPattern
-                if (name.endsWith('.xml')) {
-                    startSnippetPattern = Pattern.compile('\\s*<!--\\s*START\\s+SNIPPET\\s+(\\S+)\\s*-->')
-                    endSnippetPattern = Pattern.compile('\\s*<!--\\s*END\\s+SNIPPET\\s+(\\S+)\\s*-->')
-                } else {
-                    startSnippetPattern = Pattern.compile('\\s*//\\s*START\\s+SNIPPET\\s+(\\S+)\\s*')
-                    endSnippetPattern = Pattern.compile('\\s*//\\s*END\\s+SNIPPET\\s+(\\S+)\\s*')
-                }
+    /**
+     * Extracts the snippets of the given source file, adding each file written to the given list.
+     */
+    void extract(File srcFile, String name, List<File> outputs) {
+        File destFile = new File(destDir, name)
 
-                try {
-                    // Can't use eachLine {} because it throws away blank lines
-                    srcFile.withReader {Reader r ->
-                        BufferedReader reader = new BufferedReader(r)
-                        reader.readLines().each {String line ->
-                            Matcher m = startSnippetPattern.matcher(line)
-                            if (m.matches()) {
-                                String snippetName = m.group(1)
-                                if (!writers[snippetName]) {
-                                    File snippetFile = new File(snippetsDir, "$name-$snippetName")
-                                    writers.put(snippetName, new SnippetWriter("Snippet $snippetName in $name", snippetFile))
-                                }
-                                writers[snippetName].start()
-                                return
-                            }
-                            m = endSnippetPattern.matcher(line)
-                            if (m.matches()) {
-                                String snippetName = m.group(1)
-                                writers[snippetName].end()
-                                return
-                            }
-                            writers.values().each {SnippetWriter w ->
-                                w.println(line)
-                            }
+        destFile.parentFile.mkdirs()
+
+        if (['.jar', '.zip', '.gpg'].find{ name.endsWith(it) }) {
+            outputs << destFile
+            copy(srcFile, destFile)
+            return
+        }
+
+        Map writers = [
+                0: new SnippetWriter(name, destFile, outputs).start(),
+                1: new SnippetWriter(name, new File(snippetsDir, name), outputs).start()
+        ]
+        Pattern startSnippetPattern
+        Pattern endSnippetPattern
+        if (name.endsWith('.xml')) {
+            startSnippetPattern = XML_START_SNIPPET
+            endSnippetPattern = XML_END_SNIPPET
+        } else {
+            startSnippetPattern = START_SNIPPET
+            endSnippetPattern = END_SNIPPET
+        }
+
+        try {
+            // Can't use eachLine {} because it throws away blank lines
+            srcFile.withReader {Reader r ->
+                BufferedReader reader = new BufferedReader(r)
+                Matcher startMatcher = startSnippetPattern.matcher('')
+                Matcher endMatcher = endSnippetPattern.matcher('')
+                String line
+                while ((line = reader.readLine()) != null) {
+                    if (startMatcher.reset(line).matches()) {
+                        String snippetName = startMatcher.group(1)
+                        if (!writers[snippetName]) {
+                            File snippetFile = new File(snippetsDir, "$name-$snippetName")
+                            writers.put(snippetName, new SnippetWriter("Snippet $snippetName in $name", snippetFile, outputs))
                         }
+                        writers[snippetName].start()
+                        continue
+                    }
+                    if (endMatcher.reset(line).matches()) {
+                        String snippetName = endMatcher.group(1)
+                        writers[snippetName].end()
+                        continue
                     }
-                } finally {
                     writers.values().each {SnippetWriter w ->
-                        w.close()
+                        w.println(line)
                     }
                 }
             }
+        } finally {
+            writers.values().each {SnippetWriter w ->
+                w.close()
+            }
+        }
+    }
+
+    /**
+     * Returns the files written for each source file by earlier executions of this task.
+     */
+    Map<File, List<File>> readOutputs() {
+        Map<File, List<File>> outputs = [:]
+        File recordFile = outputsRecordFile()
+        if (recordFile.isFile()) {
+            recordFile.eachLine { String line ->
+                String[] paths = line.split('\t')
+                outputs[new File(paths[0])] = paths.drop(1).collect { new File(it) }
+            }
+        }
+        outputs
+    }
+
+    void writeOutputs(Map<File, List<File>> outputs) {
+        outputsRecordFile().withPrintWriter { PrintWriter writer ->
+            outputs.each { File srcFile, List<File> srcOutputs ->
+                writer.println(([srcFile] + srcOutputs).collect { File file -> file.absolutePath }.join('\t'))
+            }
+        }
+    }
+
+    File outputsRecordFile() {
+        new File(temporaryDir, "outputs.txt")
+    }
+
+    void deleteOutputs(List<File> outputs) {
+        if (outputs) {
+            project.delete(outputs)
+        }
+    }
+
+    private static void copy(File srcFile, File destFile) {
+        FileChannel input = new FileInputStream(srcFile).channel
+        try {
+            FileChannel output = new FileOutputStream(destFile).channel
+            try {
+                long position = 0
+                long size = input.size()
+                while (position < size) {
+                    position += input.transferTo(position, size - position, output)
+                }
+            } finally {
+                output.close()
+            }
+        } finally {
+            input.close()
         }
     }
 }
@@ -106,12 +227,14 @@ class SnippetWriter {
 
     private final File dest
     private final String displayName
+    private final List<File> outputs
     private boolean appendToFile
     private PrintWriter writer
 
-    def SnippetWriter(String displayName, File dest) {
+    def SnippetWriter(String displayName, File dest, List<File> outputs) {
         this.dest = dest
         this.displayName = displayName
+        this.outputs = outputs
     }
 
     def start() {
@@ -119,6 +242,9 @@ class SnippetWriter {
             throw new RuntimeException("$displayName is already started.")
         }
         dest.parentFile.mkdirs()
+        if (!appendToFile) {
+            outputs << dest
+        }
         writer = new PrintWriter(dest.newWriter(appendToFile), false)
         appendToFile = true
         this
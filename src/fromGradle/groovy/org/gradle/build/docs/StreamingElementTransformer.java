@@ -0,0 +1,274 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the events of a parsed document to an {@link XMLStreamWriter}, transforming the elements selected by an
+ * {@link ElementTransformPipeline} on the way.
+ *
+ * <p>Each selected element is read into a detached DOM fragment owned by the given document, transformed by the
+ * pipeline and written out in place of the original element, after which the fragment is discarded. Everything else is
+ * written as it is read, so at most one selected element is held in memory at a time.</p>
+ */
+class StreamingElementTransformer extends DefaultHandler2 {
+    private final ElementTransformPipeline pipeline;
+    private final Document document;
+    private final XMLStreamWriter writer;
+    private final Element holder;
+    private final List<String[]> namespaces = new ArrayList<String[]>();
+    private final StringBuilder cdata = new StringBuilder();
+    private Node current;
+    /** The number of elements which have been started but not ended, excluding those of the current fragment. */
+    private int depth;
+    private boolean inCData;
+    private boolean inDtd;
+
+    StreamingElementTransformer(ElementTransformPipeline pipeline, Document document, XMLStreamWriter writer) {
+        this.pipeline = pipeline;
+        this.document = document;
+        this.writer = writer;
+        this.holder = document.createElement("fragment");
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+        try {
+            writer.writeStartDocument("UTF-8", "1.0");
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        try {
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) {
+        namespaces.add(new String[]{prefix, uri});
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+        Element element = document.createElementNS(uri.length() == 0 ? null : uri, qName);
+        for (String[] namespace : namespaces) {
+            String name = namespace[0].length() == 0 ? "xmlns" : "xmlns:" + namespace[0];
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, namespace[1]);
+        }
+        namespaces.clear();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String attributeUri = attributes.getURI(i);
+            element.setAttributeNS(attributeUri.length() == 0 ? null : attributeUri, attributes.getQName(i), attributes.getValue(i));
+        }
+
+        if (current != null) {
+            current.appendChild(element);
+            current = element;
+        } else if (pipeline.accepts(element, depth)) {
+            holder.appendChild(element);
+            current = element;
+        } else {
+            try {
+                writeStartElement(element, true);
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+            depth++;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        try {
+            if (current == null) {
+                writer.writeEndElement();
+                depth--;
+                return;
+            }
+            Node parent = current.getParentNode();
+            if (parent != holder) {
+                current = parent;
+                return;
+            }
+
+            current = null;
+            pipeline.transform((Element) holder.getFirstChild(), depth);
+            for (Node node = holder.getFirstChild(); node != null; node = holder.getFirstChild()) {
+                write(node);
+                holder.removeChild(node);
+            }
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        if (inCData) {
+            cdata.append(ch, start, length);
+        } else if (current != null) {
+            current.appendChild(document.createTextNode(new String(ch, start, length)));
+        } else {
+            try {
+                writer.writeCharacters(ch, start, length);
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    @Override
+    public void startCDATA() {
+        inCData = true;
+        cdata.setLength(0);
+    }
+
+    @Override
+    public void endCDATA() throws SAXException {
+        inCData = false;
+        if (current != null) {
+            current.appendChild(document.createCDATASection(cdata.toString()));
+        } else {
+            try {
+                writer.writeCData(cdata.toString());
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+        if (inDtd) {
+            return;
+        }
+        String text = new String(ch, start, length);
+        if (current != null) {
+            current.appendChild(document.createComment(text));
+        } else {
+            try {
+                writer.writeComment(text);
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        if (current != null) {
+            current.appendChild(document.createProcessingInstruction(target, data));
+        } else {
+            try {
+                writer.writeProcessingInstruction(target, data);
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) {
+        inDtd = true;
+    }
+
+    @Override
+    public void endDTD() {
+        inDtd = false;
+    }
+
+    private void write(Node node) throws XMLStreamException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                boolean empty = node.getFirstChild() == null;
+                writeStartElement((Element) node, !empty);
+                if (!empty) {
+                    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        write(child);
+                    }
+                    writer.writeEndElement();
+                }
+                break;
+            case Node.TEXT_NODE:
+                writer.writeCharacters(node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writer.writeCData(node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                writer.writeComment(node.getNodeValue());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                ProcessingInstruction instruction = (ProcessingInstruction) node;
+                writer.writeProcessingInstruction(instruction.getTarget(), instruction.getData());
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    write(child);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void writeStartElement(Element element, boolean hasContent) throws XMLStreamException {
+        if (hasContent) {
+            writer.writeStartElement(element.getNodeName());
+        } else {
+            writer.writeEmptyElement(element.getNodeName());
+        }
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            String name = attribute.getName();
+            if (name.equals("xmlns")) {
+                writer.writeDefaultNamespace(attribute.getValue());
+            } else if (name.startsWith("xmlns:")) {
+                writer.writeNamespace(name.substring(6), attribute.getValue());
+            } else {
+                writer.writeAttribute(name, attribute.getValue());
+            }
+        }
+    }
+}
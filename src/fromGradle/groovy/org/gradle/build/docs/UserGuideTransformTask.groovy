@@ -20,10 +20,11 @@ package org.gradle.build.docs
 import groovy.xml.dom.DOMCategory
 import org.gradle.api.DefaultTask
 import org.gradle.api.InvalidUserDataException
+import org.gradle.build.docs.ElementTransformPipeline.ElementHandler
 import org.gradle.build.docs.dsl.links.ClassLinkMetaData
 import org.gradle.build.docs.dsl.links.LinkMetaData
 import org.gradle.build.docs.model.ClassMetaDataRepository
-import org.gradle.build.docs.model.SimpleClassMetaDataRepository
+import org.gradle.build.docs.model.MappedClassMetaDataRepository
 import org.w3c.dom.Document
 import org.w3c.dom.Element
 import org.gradle.api.tasks.*
@@ -76,192 +77,238 @@ public class UserGuideTransformTask extends DefaultTask {
         websiteUrl
     }
 
+    /**
+     * When true, the source is streamed to the destination instead of being transformed as a whole document, so that
+     * only the elements being replaced are held in memory. The result is equivalent, but is not serialized byte for
+     * byte the same as the default mode.
+     */
+    @Input
+    boolean streaming
+
     @TaskAction
     def transform() {
-        XIncludeAwareXmlProvider provider = new XIncludeAwareXmlProvider()
-        provider.parse(sourceFile)
-        transformImpl(provider.document)
-        provider.write(destFile)
-    }
-
-    private def transformImpl(Document doc) {
         use(DOMCategory) {
             use(BuildableDOMCategory) {
-                addVersionInfo(doc)
-                applyConditionalChunks(doc)
-                transformSamples(doc)
-                transformApiLinks(doc)
-                transformWebsiteLinks(doc)
-                fixProgramListings(doc)
+                XIncludeAwareXmlProvider samplesXmlProvider = new XIncludeAwareXmlProvider()
+                samplesXmlProvider.emptyDoc() << {
+                    samples()
+                }
+                Element samplesXml = samplesXmlProvider.root.documentElement
+
+                MappedClassMetaDataRepository<ClassLinkMetaData> linkRepository = new MappedClassMetaDataRepository<ClassLinkMetaData>()
+                linkRepository.load(linksFile)
+                try {
+                    XIncludeAwareXmlProvider provider = new XIncludeAwareXmlProvider()
+                    if (streaming) {
+                        Document doc = provider.emptyDoc()
+                        // Only the first book info element directly below the root is the book's own
+                        boolean versionInfoAdded = false
+                        ElementTransformPipeline pipeline = new ElementTransformPipeline().add('bookinfo', 1, { Element element ->
+                            if (!versionInfoAdded) {
+                                addVersionInfo(doc, element)
+                                versionInfoAdded = true
+                            }
+                            return element
+                        } as ElementHandler)
+                        provider.transform(sourceFile, destFile, addTransforms(pipeline, doc, samplesXml, linkRepository))
+                    } else {
+                        provider.parse(sourceFile)
+                        Document doc = provider.document
+                        addVersionInfo(doc)
+                        addTransforms(new ElementTransformPipeline(), doc, samplesXml, linkRepository).transform(doc.documentElement)
+                        provider.write(destFile)
+                    }
+                } finally {
+                    linkRepository.close()
+                }
+
+                File samplesFile = new File(destFile.parentFile, 'samples.xml')
+                samplesXmlProvider.write(samplesFile, true)
             }
         }
     }
 
+    ElementTransformPipeline addTransforms(ElementTransformPipeline pipeline, Document doc, Element samplesXml,
+                                           ClassMetaDataRepository<ClassLinkMetaData> linkRepository) {
+        // Each element is handled by the transforms in the same order as when each transform made its own
+        // pass over the document. Program listings were fixed in the last pass, so they are normalised once
+        // the links and conditional chunks inside them have been transformed
+        return pipeline
+                .add('@condition', { Element element -> applyConditionalChunk(element) } as ElementHandler)
+                .add('sample', { Element element -> transformSample(doc, samplesXml, element) } as ElementHandler)
+                .add('apilink', { Element element -> transformApiLink(doc, linkRepository, element) } as ElementHandler)
+                .add('ulink', { Element element -> transformWebsiteLink(element) } as ElementHandler)
+                .addAfterChildren('programlisting', { Element element -> fixProgramListing(element) } as ElementHandler)
+                .addAfterChildren('screen', { Element element -> fixProgramListing(element) } as ElementHandler)
+    }
+
     def addVersionInfo(Document doc) {
-        Element releaseInfo = doc.createElement('releaseinfo')
-        releaseInfo.appendChild(doc.createTextNode(version.toString()))
         if (doc.documentElement.bookinfo[0]) {
-            doc.documentElement.bookinfo[0].appendChild(releaseInfo)
+            addVersionInfo(doc, doc.documentElement.bookinfo[0])
         }
     }
 
-    def fixProgramListings(Document doc) {
-        doc.documentElement.depthFirst().findAll { it.name() == 'programlisting' || it.name() == 'screen' }.each {Element element ->
-            element.setTextContent(normalise(element.getTextContent()))
-        }
+    void addVersionInfo(Document doc, Element bookInfo) {
+        Element releaseInfo = doc.createElement('releaseinfo')
+        releaseInfo.appendChild(doc.createTextNode(version.toString()))
+        bookInfo.appendChild(releaseInfo)
+    }
+
+    Element fixProgramListing(Element element) {
+        element.setTextContent(normalise(element.getTextContent()))
+        return element
     }
 
     String normalise(String content) {
         return content.trim().replace('\t', '    ').replace('\r\n', '\n')
     }
 
-    def transformApiLinks(Document doc) {
-        ClassMetaDataRepository<ClassLinkMetaData> linkRepository = new SimpleClassMetaDataRepository<ClassLinkMetaData>()
-        linkRepository.load(linksFile)
-
-        doc.documentElement.depthFirst().findAll { it.name() == 'apilink' }.each {Element element ->
-            String className = element.'@class'
-            if (!className) {
-                throw new RuntimeException('No "class" attribute specified for <apilink> element.')
+    Element transformApiLink(Document doc, ClassMetaDataRepository<ClassLinkMetaData> linkRepository, Element element) {
+        String className = element.'@class'
+        if (!className) {
+            throw new RuntimeException('No "class" attribute specified for <apilink> element.')
+        }
+        String methodName = element.'@method'
+
+        def classMetaData = linkRepository.get(className)
+        LinkMetaData linkMetaData = methodName ? classMetaData.getMethod(methodName) : classMetaData.classLink
+
+        String style = element.'@style' ?: linkMetaData.style.toString().toLowerCase()
+        Element newElement
+        if (style == 'dsldoc') {
+            String href
+            href = "$dsldocUrl/${className}.html"
+            if (linkMetaData.urlFragment) {
+                href = "$href#$linkMetaData.urlFragment"
             }
-            String methodName = element.'@method'
-
-            def classMetaData = linkRepository.get(className)
-            LinkMetaData linkMetaData = methodName ? classMetaData.getMethod(methodName) : classMetaData.classLink
-
-            String style = element.'@style' ?: linkMetaData.style.toString().toLowerCase()
-            Element newElement
-            if (style == 'dsldoc') {
-                String href
-                href = "$dsldocUrl/${className}.html"
-                if (linkMetaData.urlFragment) {
-                    href = "$href#$linkMetaData.urlFragment"
-                }
 
-                newElement = doc.createElement('ulink')
-                newElement.setAttribute('url', href)
-                Element classNameElement = doc.createElement('classname')
-                newElement.appendChild(classNameElement)
+            newElement = doc.createElement('ulink')
+            newElement.setAttribute('url', href)
+            Element classNameElement = doc.createElement('classname')
+            newElement.appendChild(classNameElement)
 
-                classNameElement.appendChild(doc.createTextNode(linkMetaData.displayName))
-            } else {
-                newElement = doc.createElement('classname')
-                newElement.appendChild(doc.createTextNode(linkMetaData.displayName))
-            }
-
-            element.parentNode.replaceChild(newElement, element)
+            classNameElement.appendChild(doc.createTextNode(linkMetaData.displayName))
+        } else {
+            newElement = doc.createElement('classname')
+            newElement.appendChild(doc.createTextNode(linkMetaData.displayName))
         }
+
+        element.parentNode.replaceChild(newElement, element)
+        return newElement
     }
 
-    def transformWebsiteLinks(Document doc) {
-        doc.documentElement.depthFirst().findAll { it.name() == 'ulink' }.each {Element element ->
-            String url = element.'@url'
-            if (url.startsWith('website:')) {
-                url = url.substring(8)
-                if (websiteUrl) {
-                    url = "${websiteUrl}/${url}"
-                }
-                element.setAttribute('url', url)
+    Element transformWebsiteLink(Element element) {
+        String url = element.'@url'
+        if (url.startsWith('website:')) {
+            url = url.substring(8)
+            if (websiteUrl) {
+                url = "${websiteUrl}/${url}"
             }
+            element.setAttribute('url', url)
         }
+        return element
     }
 
-    def transformSamples(Document doc) {
-        XIncludeAwareXmlProvider samplesXmlProvider = new XIncludeAwareXmlProvider()
-        samplesXmlProvider.emptyDoc() << {
-            samples()
-        }
-        Element samplesXml = samplesXmlProvider.root.documentElement
-        doc.documentElement.depthFirst().findAll { it.name() == 'sample' }.each { Element element ->
-            validator.validate(element)
-            String sampleId = element.'@id'
-            String srcDir = element.'@dir'
-
-            // This class handles the responsibility of adding the location tips to the first child of first
-            // example defined in the sample.
-            SampleElementLocationHandler locationHandler = new SampleElementLocationHandler(doc, element, srcDir)
-            SampleLayoutHandler layoutHandler = new SampleLayoutHandler(srcDir)
-
-            samplesXml << { sample(id: sampleId, dir: srcDir) }
-
-            String title = element.'@title'
-
-            Element exampleElement = doc.createElement('example')
-            exampleElement.setAttribute('id', sampleId)
-            Element titleElement = doc.createElement('title')
-            titleElement.appendChild(doc.createTextNode(title))
-            exampleElement.appendChild(titleElement);
-
-            element.children().each {Element child ->
-                if (child.name() == 'sourcefile') {
-                    String file = child.'@file'
-
-                    Element sourcefileTitle = doc.createElement("para")
-                    Element commandElement = doc.createElement('filename')
-                    commandElement.appendChild(doc.createTextNode(file))
-                    sourcefileTitle.appendChild(commandElement)
-                    exampleElement.appendChild(sourcefileTitle);
-
-                    Element programListingElement = doc.createElement('programlisting')
-                    if (file.endsWith('.gradle') || file.endsWith('.groovy') || file.endsWith('.java')) {
-                        programListingElement.setAttribute('language', 'java')
-                    }
-                    else if (file.endsWith('.xml')) {
-                        programListingElement.setAttribute('language', 'xml')
-                    }
-                    File srcFile
-                    String snippet = child.'@snippet'
-                    if (snippet) {
-                        srcFile = new File(snippetsDir, "$srcDir/$file-$snippet")
-                    } else {
-                        srcFile = new File(snippetsDir, "$srcDir/$file")
-                    }
-                    programListingElement.appendChild(doc.createTextNode(normalise(srcFile.text)))
-                    exampleElement.appendChild(programListingElement)
-                } else if (child.name() == 'output') {
-                    String args = child.'@args'
-                    String outputFile = child.'@outputFile' ?: "${sampleId}.out"
-                    boolean ignoreExtraLines = child.'@ignoreExtraLines' ?: false
-                    boolean ignoreLineOrder = child.'@ignoreLineOrder' ?: false
-                    boolean expectFailure = child.'@expectFailure' ?: false
-
-                    samplesXml << { sample(id: sampleId, dir: srcDir, args: args, outputFile: outputFile,
-                                           ignoreExtraLines: ignoreExtraLines, ignoreLineOrder: ignoreLineOrder, expectFailure: expectFailure) }
-
-                    Element outputTitle = doc.createElement("para")
-                    outputTitle.appendChild(doc.createTextNode("Output of "))
-                    Element commandElement = doc.createElement('userinput')
-                    commandElement.appendChild(doc.createTextNode("gradle $args"))
-                    outputTitle.appendChild(commandElement)
-                    exampleElement.appendChild(outputTitle)
-
-                    Element screenElement = doc.createElement('screen')
-                    File srcFile = new File(sourceFile.parentFile, "../../../src/samples/userguideOutput/${outputFile}").canonicalFile
-                    screenElement.appendChild(doc.createTextNode("> gradle $args\n" + normalise(srcFile.text)))
-                    exampleElement.appendChild(screenElement)
-                } else if (child.name() == 'test') {
-                    String args = child.'@args'
-                    samplesXml << { sample(id: sampleId, dir: srcDir, args: args) }
-                } else if (child.name() == 'layout') {
-                    String args = child.'@after'
-                    Element sampleElement = samplesXml << { sample(id: sampleId, dir: srcDir, args: args) }
-                    layoutHandler.handle(child.text(), exampleElement, sampleElement)
+    Element transformSample(Document doc, Element samplesXml, Element element) {
+        // Conditional chunks are removed before the sample is transformed
+        applyConditionalChunks(element)
+        validator.validate(element)
+        String sampleId = element.'@id'
+        String srcDir = element.'@dir'
+
+        // This class handles the responsibility of adding the location tips to the first child of first
+        // example defined in the sample.
+        SampleElementLocationHandler locationHandler = new SampleElementLocationHandler(doc, element, srcDir)
+        SampleLayoutHandler layoutHandler = new SampleLayoutHandler(srcDir)
+
+        samplesXml << { sample(id: sampleId, dir: srcDir) }
+
+        String title = element.'@title'
+
+        Element exampleElement = doc.createElement('example')
+        exampleElement.setAttribute('id', sampleId)
+        Element titleElement = doc.createElement('title')
+        titleElement.appendChild(doc.createTextNode(title))
+        exampleElement.appendChild(titleElement);
+
+        element.children().each {Element child ->
+            if (child.name() == 'sourcefile') {
+                String file = child.'@file'
+
+                Element sourcefileTitle = doc.createElement("para")
+                Element commandElement = doc.createElement('filename')
+                commandElement.appendChild(doc.createTextNode(file))
+                sourcefileTitle.appendChild(commandElement)
+                exampleElement.appendChild(sourcefileTitle);
+
+                Element programListingElement = doc.createElement('programlisting')
+                if (file.endsWith('.gradle') || file.endsWith('.groovy') || file.endsWith('.java')) {
+                    programListingElement.setAttribute('language', 'java')
                 }
-
-                locationHandler.processSampleLocation(exampleElement)
+                else if (file.endsWith('.xml')) {
+                    programListingElement.setAttribute('language', 'xml')
+                }
+                File srcFile
+                String snippet = child.'@snippet'
+                if (snippet) {
+                    srcFile = new File(snippetsDir, "$srcDir/$file-$snippet")
+                } else {
+                    srcFile = new File(snippetsDir, "$srcDir/$file")
+                }
+                programListingElement.appendChild(doc.createTextNode(normalise(srcFile.text)))
+                exampleElement.appendChild(programListingElement)
+            } else if (child.name() == 'output') {
+                String args = child.'@args'
+                String outputFile = child.'@outputFile' ?: "${sampleId}.out"
+                boolean ignoreExtraLines = child.'@ignoreExtraLines' ?: false
+                boolean ignoreLineOrder = child.'@ignoreLineOrder' ?: false
+                boolean expectFailure = child.'@expectFailure' ?: false
+
+                samplesXml << { sample(id: sampleId, dir: srcDir, args: args, outputFile: outputFile,
+                                       ignoreExtraLines: ignoreExtraLines, ignoreLineOrder: ignoreLineOrder, expectFailure: expectFailure) }
+
+                Element outputTitle = doc.createElement("para")
+                outputTitle.appendChild(doc.createTextNode("Output of "))
+                Element commandElement = doc.createElement('userinput')
+                commandElement.appendChild(doc.createTextNode("gradle $args"))
+                outputTitle.appendChild(commandElement)
+                exampleElement.appendChild(outputTitle)
+
+                Element screenElement = doc.createElement('screen')
+                File srcFile = new File(sourceFile.parentFile, "../../../src/samples/userguideOutput/${outputFile}").canonicalFile
+                screenElement.appendChild(doc.createTextNode("> gradle $args\n" + normalise(srcFile.text)))
+                exampleElement.appendChild(screenElement)
+            } else if (child.name() == 'test') {
+                String args = child.'@args'
+                samplesXml << { sample(id: sampleId, dir: srcDir, args: args) }
+            } else if (child.name() == 'layout') {
+                String args = child.'@after'
+                Element sampleElement = samplesXml << { sample(id: sampleId, dir: srcDir, args: args) }
+                layoutHandler.handle(child.text(), exampleElement, sampleElement)
             }
-            element.parentNode.insertBefore(exampleElement, element)
-            element.parentNode.removeChild(element)
+
+            locationHandler.processSampleLocation(exampleElement)
         }
+        element.parentNode.insertBefore(exampleElement, element)
+        element.parentNode.removeChild(element)
+        return exampleElement
+    }
 
-        File samplesFile = new File(destFile.parentFile, 'samples.xml')
-        samplesXmlProvider.write(samplesFile, true)
+    Element applyConditionalChunk(Element element) {
+        if (!tags.contains(element.'@condition')) {
+            element.parentNode.removeChild(element)
+            return null
+        }
+        return element
     }
 
-    void applyConditionalChunks(Document doc) {
-        doc.documentElement.depthFirst().findAll { it.'@condition' }.each {Element element ->
-            if (!tags.contains(element.'@condition')) {
-                element.parentNode.removeChild(element)
+    /**
+     * Removes the conditional chunks within the given element.
+     */
+    void applyConditionalChunks(Element element) {
+        element.depthFirst().findAll { it != element && it.'@condition' }.each { Element chunk ->
+            if (!tags.contains(chunk.'@condition')) {
+                chunk.parentNode.removeChild(chunk)
             }
         }
     }
@@ -17,6 +17,10 @@ package org.gradle.build.docs
 
 import javax.xml.parsers.DocumentBuilder
 import javax.xml.parsers.DocumentBuilderFactory
+import javax.xml.parsers.SAXParser
+import javax.xml.parsers.SAXParserFactory
+import javax.xml.stream.XMLOutputFactory
+import javax.xml.stream.XMLStreamWriter
 import javax.xml.transform.OutputKeys
 import javax.xml.transform.Transformer
 import javax.xml.transform.TransformerFactory
@@ -26,7 +30,18 @@ import org.w3c.dom.Document
 import org.w3c.dom.Element
 import org.w3c.dom.Node
 
+/**
+ * Reads and writes docbook sources, resolving XIncludes as they are read.
+ *
+ * <p>The JAXP factories are expensive to look up, so each provider looks them up the first time it needs them and reuses
+ * them for every document it reads or writes. The factories are not thread-safe, so neither is the provider.</p>
+ *
+ * <p>Parsed documents are fully expanded as they are read, rather than building each node the first time it is
+ * visited, so that a document which has been read can then be read from several threads at once.</p>
+ */
 class XIncludeAwareXmlProvider {
+    private Factories factories
+
     Document root
 
     Element parse(File sourceFile) {
@@ -35,13 +50,12 @@ class XIncludeAwareXmlProvider {
     }
 
     Node emptyDoc() {
-        root = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+        root = factories().documentBuilder.newDocument()
     }
 
     void write(File destFile, boolean indent = false) {
         destFile.withOutputStream {OutputStream stream ->
-            TransformerFactory factory = TransformerFactory.newInstance();
-            Transformer transformer = factory.newTransformer();
+            Transformer transformer = factories().transformerFactory.newTransformer();
             if (indent) {
                 transformer.setOutputProperty(OutputKeys.INDENT, "yes")
             }
@@ -51,16 +65,67 @@ class XIncludeAwareXmlProvider {
         }
     }
 
+    /**
+     * Copies the given source file to the given destination file, applying the given pipeline to each element it
+     * selects. Unlike {@link #parse(File)} and {@link #write(File, boolean)}, the document is never held in memory as a
+     * whole: the source is streamed to the destination and only the selected elements are built, one at a time, in the
+     * document created by {@link #emptyDoc()}. The pipeline's handlers should create their elements in that document.
+     */
+    void transform(File sourceFile, File destFile, ElementTransformPipeline pipeline) {
+        Factories factories = factories()
+        if (root == null) {
+            emptyDoc()
+        }
+        destFile.withOutputStream {OutputStream stream ->
+            XMLStreamWriter writer = factories.outputFactory.createXMLStreamWriter(stream, "UTF-8")
+            try {
+                StreamingElementTransformer handler = new StreamingElementTransformer(pipeline, root, writer)
+                SAXParser parser = factories.saxParser
+                parser.reset()
+                parser.setProperty("http://xml.org/sax/properties/lexical-handler", handler)
+                parser.parse(sourceFile, handler)
+            } finally {
+                writer.close()
+            }
+        }
+    }
+
     Document getDocument() {
         return root
     }
-    
+
     private Document parseSourceFile(File sourceFile) {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance()
-        factory.setNamespaceAware(true)
-        factory.setXIncludeAware(true)
-        DocumentBuilder builder = factory.newDocumentBuilder()
+        DocumentBuilder builder = factories().sourceBuilder
+        builder.reset()
         return builder.parse(sourceFile)
     }
 
+    private Factories factories() {
+        if (factories == null) {
+            factories = new Factories()
+        }
+        return factories
+    }
+
+    private static class Factories {
+        final DocumentBuilder sourceBuilder
+        final DocumentBuilder documentBuilder
+        final SAXParser saxParser
+        final TransformerFactory transformerFactory = TransformerFactory.newInstance()
+        final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance()
+
+        Factories() {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance()
+            documentBuilder = factory.newDocumentBuilder()
+            factory.setNamespaceAware(true)
+            factory.setXIncludeAware(true)
+            factory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false)
+            sourceBuilder = factory.newDocumentBuilder()
+
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance()
+            parserFactory.setNamespaceAware(true)
+            parserFactory.setXIncludeAware(true)
+            saxParser = parserFactory.newSAXParser()
+        }
+    }
 }
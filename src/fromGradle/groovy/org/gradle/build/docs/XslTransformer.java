@@ -15,16 +15,41 @@
  */
 package org.gradle.build.docs;
 
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Transforms docbook sources using a stylesheet which is compiled once, when the transformer is created. Can be run
+ * from the command-line to transform a single source, or used in-process to transform many sources, from any number of
+ * threads.
+ *
+ * <p>Sources are read with an XInclude-aware parser, and any settings the stylesheet needs, such as the syntax
+ * highlighting configuration, are passed as stylesheet parameters, so that no system properties need to be set.</p>
+ */
 public class XslTransformer {
+    private final Templates templates;
+
+    public XslTransformer(File stylesheet) throws TransformerConfigurationException {
+        templates = TransformerFactory.newInstance().newTemplates(new StreamSource(stylesheet));
+    }
+
     public static void main(String[] args) throws TransformerException, IOException {
         if (args.length < 3 || args.length > 4) {
             throw new IllegalArgumentException("USAGE: <style-sheet> <source-file> <dest-file> [dest-dir]");
@@ -32,9 +57,11 @@ public class XslTransformer {
         File stylesheet = new File(args[0]);
         File source = new File(args[1]);
         File dest = new File(args[2]);
+        Map<String, String> parameters = new HashMap<String, String>();
         String destDir = "";
         if (args.length > 3) {
             destDir = args[3];
+            parameters.put("base.dir", destDir + "/");
         }
 
         System.out.format("=> stylesheet %s%n", stylesheet);
@@ -42,17 +69,37 @@ public class XslTransformer {
         System.out.format("=> dest %s%n", dest);
         System.out.format("=> destDir %s%n", destDir);
 
-        TransformerFactory factory = TransformerFactory.newInstance();
-        Transformer transformer = factory.newTransformer(new StreamSource(stylesheet));
+        XslTransformer transformer = new XslTransformer(stylesheet);
+
+        System.out.format("=> templates %s (%s)%n", transformer.templates, transformer.templates.getClass().getName());
 
-        System.out.format("=> transformer %s (%s)%n", transformer, transformer.getClass().getName());
+        transformer.transform(source, dest, parameters);
+    }
 
-        if (destDir.length() > 0) {
-            transformer.setParameter("base.dir", destDir + "/");
+    /**
+     * Transforms the given source into the given file, resolving any XIncludes in the source.
+     *
+     * @param parameters The stylesheet parameters, such as {@code base.dir} for chunked output.
+     */
+    public void transform(File source, File dest, Map<String, String> parameters) throws TransformerException, IOException {
+        Transformer transformer = templates.newTransformer();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            transformer.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        XMLReader reader;
+        try {
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            parserFactory.setXIncludeAware(true);
+            reader = parserFactory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new TransformerException(e);
+        } catch (SAXException e) {
+            throw new TransformerException(e);
         }
         FileOutputStream outstr = new FileOutputStream(dest);
         try {
-            transformer.transform(new StreamSource(source), new StreamResult(outstr));
+            transformer.transform(new SAXSource(reader, new InputSource(source.toURI().toString())), new StreamResult(outstr));
         } finally {
             outstr.close();
         }
@@ -17,6 +17,7 @@ package org.gradle.build.docs.dsl.docbook
 
 import groovy.xml.dom.DOMCategory
 import org.gradle.api.DefaultTask
+import org.gradle.api.Transformer
 import org.gradle.api.tasks.InputDirectory
 import org.gradle.api.tasks.InputFile
 import org.gradle.api.tasks.OutputFile
@@ -30,11 +31,17 @@ import org.gradle.build.docs.dsl.docbook.model.ClassExtensionMetaData
 import org.gradle.build.docs.dsl.links.ClassLinkMetaData
 import org.gradle.build.docs.dsl.links.LinkMetaData
 import org.gradle.build.docs.dsl.source.model.ClassMetaData
-import org.gradle.build.docs.model.ClassMetaDataRepository
-import org.gradle.build.docs.model.SimpleClassMetaDataRepository
+import org.gradle.build.docs.model.MappedClassMetaDataRepository
 import org.w3c.dom.Document
 import org.w3c.dom.Element
 
+import javax.xml.parsers.DocumentBuilderFactory
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
 /**
  * Generates the docbook source for the DSL reference guide.
  *
@@ -52,6 +59,9 @@ import org.w3c.dom.Element
  * <li>A meta-data file containing information about where the canonical documentation for each class can be found:
  * as dsl doc, javadoc or groovydoc.</li>
  * </ul>
+ *
+ * The documentation for each class is built and rendered in parallel, using up to {@code maxParallelism} threads, and
+ * the results are merged into the main document in class name order.
  */
 class AssembleDslDocTask extends DefaultTask {
     @InputFile
@@ -66,6 +76,7 @@ class AssembleDslDocTask extends DefaultTask {
     File destFile
     @OutputFile
     File linksFile
+    int maxParallelism = Runtime.runtime.availableProcessors()
 
     @TaskAction
     def transform() {
@@ -76,29 +87,53 @@ class AssembleDslDocTask extends DefaultTask {
     }
 
     private def transformDocument(Document mainDocbookTemplate) {
-        ClassMetaDataRepository<ClassMetaData> classRepository = new SimpleClassMetaDataRepository<ClassMetaData>()
+        MappedClassMetaDataRepository<ClassMetaData> classRepository = new MappedClassMetaDataRepository<ClassMetaData>()
         classRepository.load(classMetaDataFile)
-        ClassMetaDataRepository<ClassLinkMetaData> linkRepository = new SimpleClassMetaDataRepository<ClassLinkMetaData>()
-        //for every method found in class meta, create a javadoc/groovydoc link
-        classRepository.each {name, ClassMetaData metaData ->
-            linkRepository.put(name, new ClassLinkMetaData(metaData))
-        }
+        //the links of the classes documented here, the rest are created when the links file is written
+        Map<String, ClassLinkMetaData> dslLinks = [:]
 
-        use(DOMCategory) {
-            use(BuildableDOMCategory) {
-                Map<String, ClassExtensionMetaData> extensions = loadPluginsMetaData()
-                DslDocModel model = new DslDocModel(classDocbookDir, mainDocbookTemplate, classRepository, extensions)
-                def root = mainDocbookTemplate.documentElement
-                root.section.table.each { Element table ->
-                    mergeContent(table, model)
-                }
-                model.classes.each {
-                    generateDocForType(root.ownerDocument, model, linkRepository, it)
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelism)
+        try {
+            use(DOMCategory) {
+                use(BuildableDOMCategory) {
+                    Map<String, ClassExtensionMetaData> extensions = loadPluginsMetaData()
+                    DslDocModel model = new DslDocModel(classDocbookDir, classRepository, extensions)
+                    def root = mainDocbookTemplate.documentElement
+                    model.build(findTypes(root), executor)
+                    root.section.table.each { Element table ->
+                        mergeContent(table, model)
+                    }
+                    Collection<ClassDoc> classes = model.classes
+                    List<Future<Element>> chapters = classes.collect { renderDocForType(executor, model, it) }
+                    classes.eachWithIndex { ClassDoc classDoc, int i ->
+                        dslLinks[classDoc.name] = generateDocForType(root, classDoc, chapters[i])
+                    }
+                    logger.info("Reused {} converted member comments, converted {}.", model.commentCache.hits, model.commentCache.misses)
                 }
             }
+            //for every method found in class meta, create a javadoc/groovydoc link
+            classRepository.storeTransformed(linksFile, { ClassMetaData metaData ->
+                dslLinks[metaData.className] ?: new ClassLinkMetaData(metaData)
+            } as Transformer<ClassLinkMetaData, ClassMetaData>)
+        } finally {
+            executor.shutdownNow()
+            classRepository.close()
         }
+    }
 
-        linkRepository.store(linksFile)
+    /**
+     * Returns the names of the classes listed in the type tables of the main docbook template.
+     */
+    Collection<String> findTypes(Element root) {
+        List<String> classNames = []
+        root.section.table.each { Element table ->
+            if (table.title[0].text().matches('(?i).* types')) {
+                table.tr.each { Element tr ->
+                    classNames << tr.td[0].text().trim()
+                }
+            }
+        }
+        return classNames
     }
 
     def loadPluginsMetaData() {
@@ -206,11 +241,28 @@ class AssembleDslDocTask extends DefaultTask {
         }
     }
 
-    def generateDocForType(Document document, DslDocModel model, ClassMetaDataRepository<ClassLinkMetaData> linkRepository, ClassDoc classDoc) {
-        try {
+    /**
+     * Renders the given class into a detached chapter element.
+     */
+    Future<Element> renderDocForType(ExecutorService executor, DslDocModel model, ClassDoc classDoc) {
+        return executor.submit({
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+            Element parent = document.createElement('book')
+            document.appendChild(parent)
             //classDoc renderer renders the content of the class and also links to properties/methods
-            new ClassDocRenderer(new LinkRenderer(document, model)).mergeContent(classDoc, document.documentElement)
-            def linkMetaData = linkRepository.get(classDoc.name)
+            new ClassDocRenderer(new LinkRenderer(document, model)).mergeContent(classDoc, parent)
+            return (Element) parent.firstChild
+        } as Callable<Element>)
+    }
+
+    ClassLinkMetaData generateDocForType(Element root, ClassDoc classDoc, Future<Element> chapter) {
+        try {
+            try {
+                root.appendChild(root.ownerDocument.importNode(chapter.get(), true))
+            } catch (ExecutionException e) {
+                throw e.cause
+            }
+            def linkMetaData = new ClassLinkMetaData(classDoc.classMetaData)
             linkMetaData.style = LinkMetaData.Style.Dsldoc
             classDoc.classMethods.each { methodDoc ->
                 linkMetaData.addMethod(methodDoc.metaData, LinkMetaData.Style.Dsldoc)
@@ -221,6 +273,7 @@ class AssembleDslDocTask extends DefaultTask {
             classDoc.classProperties.each { propertyDoc ->
                 linkMetaData.addGetterMethod(propertyDoc.name, propertyDoc.metaData.getter)
             }
+            return linkMetaData
         } catch (Exception e) {
             throw new DocGenerationException("Failed to generate documentation for class '$classDoc.name'.", e)
         }
@@ -57,38 +57,41 @@ class BasicJavadocLexer implements JavadocLexer {
     }
 
     public void visit(TokenVisitor visitor) {
+        // The patterns are only tried when the current character can start a match
         while (!scanner.isEmpty()) {
-            if (scanner.lookingAt(START_HTML_COMMENT)) {
+            char first = scanner.getFirst();
+            if (first == '<' && scanner.lookingAt(START_HTML_COMMENT)) {
                 skipComment();
                 continue;
             }
-            if (scanner.lookingAt(HTML_ELEMENT)) {
+            if (first == '<' && scanner.lookingAt(HTML_ELEMENT)) {
                 parseStartElement(visitor);
                 continue;
             }
-            if (scanner.lookingAt(TAG)) {
+            if (first == '{' && scanner.lookingAt(TAG)) {
                 parseJavadocTag(visitor);
                 continue;
             }
 
             StringBuilder text = new StringBuilder();
             while (!scanner.isEmpty()) {
-                if (scanner.lookingAt(START_HTML_COMMENT)) {
+                char c = scanner.getFirst();
+                if (c == '<' && scanner.lookingAt(START_HTML_COMMENT)) {
                     skipComment();
                     continue;
                 }
-                if (scanner.lookingAt(HTML_ELEMENT)) {
+                if (c == '<' && scanner.lookingAt(HTML_ELEMENT)) {
                     break;
                 }
-                if (scanner.lookingAt(TAG)) {
+                if (c == '{' && scanner.lookingAt(TAG)) {
                     break;
                 }
-                if (scanner.lookingAt(HTML_ENCODED_CHAR)) {
+                if (c == '&' && scanner.lookingAt(HTML_ENCODED_CHAR)) {
                     parseHtmlEncodedChar(text);
-                } else if (scanner.lookingAt(HTML_ENTITY)) {
+                } else if (c == '&' && scanner.lookingAt(HTML_ENTITY)) {
                     parseHtmlEntity(text);
                 } else {
-                    text.append(scanner.getFirst());
+                    text.append(c);
                     scanner.next();
                 }
             }
@@ -188,12 +191,13 @@ class BasicJavadocLexer implements JavadocLexer {
             scanner.next();
             StringBuilder attrValue = new StringBuilder();
             while (!scanner.isEmpty() && !scanner.lookingAt(quote)) {
-                if (scanner.lookingAt(HTML_ENCODED_CHAR)) {
+                char c = scanner.getFirst();
+                if (c == '&' && scanner.lookingAt(HTML_ENCODED_CHAR)) {
                     parseHtmlEncodedChar(attrValue);
-                } else if (scanner.lookingAt(HTML_ENTITY)) {
+                } else if (c == '&' && scanner.lookingAt(HTML_ENTITY)) {
                     parseHtmlEntity(attrValue);
                 } else {
-                    attrValue.append(scanner.getFirst());
+                    attrValue.append(c);
                     scanner.next();
                 }
             }
@@ -20,7 +20,6 @@ import org.gradle.build.docs.dsl.docbook.model.ClassDoc;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class ClassDescriptionRenderer {
     private final ElementWarningsRenderer warningsRenderer = new ElementWarningsRenderer();
@@ -37,9 +36,7 @@ public class ClassDescriptionRenderer {
         for (Element element : classDoc.getComment()) {
             parent.appendChild(document.importNode(element, true));
         }
-        NodeList otherContent = classDoc.getClassSection().getChildNodes();
-        for (int i = 0; i < otherContent.getLength(); i++) {
-            Node child = otherContent.item(i);
+        for (Node child = classDoc.getClassSection().getFirstChild(); child != null; child = child.getNextSibling()) {
             if (child instanceof Element && !((Element) child).getTagName().equals("section")) {
                 parent.appendChild(document.importNode(child, true));
             }
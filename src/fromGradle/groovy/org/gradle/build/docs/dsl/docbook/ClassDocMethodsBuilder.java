@@ -26,9 +26,7 @@ import org.gradle.build.docs.dsl.source.model.TypeMetaData;
 import org.w3c.dom.Element;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class ClassDocMethodsBuilder extends ModelBuilderSupport {
     private final JavadocConverter javadocConverter;
@@ -40,11 +38,10 @@ public class ClassDocMethodsBuilder extends ModelBuilderSupport {
     }
 
     /**
-     * Builds the methods and script blocks of the given class. Assumes properties have already been built.
+     * Builds the methods and script blocks declared by the given class. Assumes properties have already been built. The
+     * inherited methods are added by {@link ClassDoc#getClassMethods()}.
      */
     public void build(ClassDoc classDoc) {
-        Set<String> signatures = new HashSet<String>();
-
         for (Element tr : children(classDoc.getMethodsTable(), "tr")) {
             List<Element> cells = children(tr, "td");
             if (cells.size() != 1) {
@@ -78,15 +75,6 @@ public class ClassDocMethodsBuilder extends ModelBuilderSupport {
                     classDoc.addClassBlock(new BlockDoc(methodDoc, property, type, multiValued));
                 } else {
                     classDoc.addClassMethod(methodDoc);
-                    signatures.add(method.getOverrideSignature());
-                }
-            }
-        }
-
-        for (ClassDoc supertype : classDoc.getSuperTypes()) {
-            for (MethodDoc method: supertype.getClassMethods()){
-                if (signatures.add(method.getMetaData().getOverrideSignature())) {
-                    classDoc.addClassMethod(method);
                 }
             }
         }
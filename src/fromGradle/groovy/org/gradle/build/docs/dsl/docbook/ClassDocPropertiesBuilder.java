@@ -23,15 +23,12 @@ import org.gradle.build.docs.dsl.source.model.PropertyMetaData;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.Text;
-import org.gradle.api.logging.Logger;
-import org.gradle.api.logging.Logging;
 
 import java.util.*;
 
 public class ClassDocPropertiesBuilder extends ModelBuilderSupport {
     private final JavadocConverter javadocConverter;
     private final GenerationListener listener;
-    private static final Logger LOG = Logging.getLogger(ClassDocPropertiesBuilder.class);
 
     public ClassDocPropertiesBuilder(JavadocConverter javadocConverter, GenerationListener listener) {
         this.javadocConverter = javadocConverter;
@@ -48,14 +45,13 @@ public class ClassDocPropertiesBuilder extends ModelBuilderSupport {
         if (header.size() < 1) {
             throw new RuntimeException(String.format("Expected at least 1 <td> in <thead>/<tr>, found: %s", header));
         }
-        Map<String, Element> inheritedValueTitleMapping = new HashMap<String, Element>();
         List<Element> valueTitles = new ArrayList<Element>();
         for (int i = 1; i < header.size(); i++) {
             Element element = header.get(i);
             Element override = findChild(element, "overrides");
             if (override != null) {
                 element.removeChild(override);
-                inheritedValueTitleMapping.put(override.getTextContent(), element);
+                classDoc.addInheritedValueTitle(override.getTextContent(), element);
             }
             Node firstChild = element.getFirstChild();
             if (firstChild instanceof Text) {
@@ -68,27 +64,7 @@ public class ClassDocPropertiesBuilder extends ModelBuilderSupport {
             valueTitles.add(element);
         }
 
-        //adding the properties from the super class onto the inheriting class
-        Map<String, PropertyDoc> props = new TreeMap<String, PropertyDoc>();
-        List<ClassDoc> superTypes = classDoc.getSuperTypes();
-        for (ClassDoc superType : superTypes) {
-            LOG.info("Getting properties for {}", superType.getName());
-            for (PropertyDoc propertyDoc : superType.getClassProperties()) {
-                Map<String, ExtraAttributeDoc> additionalValues = new LinkedHashMap<String, ExtraAttributeDoc>();
-                for (ExtraAttributeDoc attributeDoc : propertyDoc.getAdditionalValues()) {
-                    String key = attributeDoc.getKey();
-                    if (inheritedValueTitleMapping.get(key) != null) {
-                        ExtraAttributeDoc newAttribute = new ExtraAttributeDoc(inheritedValueTitleMapping.get(key), attributeDoc.getValueCell());
-                        additionalValues.put(newAttribute.getKey(), newAttribute);
-                    } else {
-                        additionalValues.put(key, attributeDoc);
-                    }
-                }
-
-                props.put(propertyDoc.getName(), propertyDoc.forClass(classDoc, additionalValues.values()));
-            }
-        }
-
+        // The inherited properties are not copied here, see ClassDoc.getClassProperties()
         for (Element row : children(classDoc.getPropertiesTable(), "tr")) {
             List<Element> cells = children(row, "td");
             if (cells.size() != header.size()) {
@@ -102,8 +78,8 @@ public class ClassDocPropertiesBuilder extends ModelBuilderSupport {
 
             Map<String, ExtraAttributeDoc> additionalValues = new LinkedHashMap<String, ExtraAttributeDoc>();
 
-            if (!superTypes.isEmpty()) {
-                PropertyDoc overriddenProp = props.get(propName);
+            if (!classDoc.getSuperTypes().isEmpty()) {
+                PropertyDoc overriddenProp = classDoc.findInheritedProperty(propName);
                 if (overriddenProp != null) {
                     for (ExtraAttributeDoc attributeDoc : overriddenProp.getAdditionalValues()) {
                         additionalValues.put(attributeDoc.getKey(), attributeDoc);
@@ -123,10 +99,6 @@ public class ClassDocPropertiesBuilder extends ModelBuilderSupport {
                 throw new RuntimeException(String.format("Docbook content for '%s.%s' does not contain a description paragraph.", classDoc.getName(), propName));
             }
 
-            props.put(propName, propertyDoc);
-        }
-
-        for (PropertyDoc propertyDoc : props.values()) {
             classDoc.addClassProperty(propertyDoc);
         }
     }
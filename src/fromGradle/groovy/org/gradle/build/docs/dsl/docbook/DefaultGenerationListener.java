@@ -35,4 +35,12 @@ public class DefaultGenerationListener implements GenerationListener {
     public void finish() {
         contextStack.removeFirst();
     }
+
+    public void commentCacheHit(String member) {
+        LOGGER.debug("Reusing converted comment for {}.", member);
+    }
+
+    public void commentCacheMiss(String member) {
+        LOGGER.debug("Converting comment for {}.", member);
+    }
 }
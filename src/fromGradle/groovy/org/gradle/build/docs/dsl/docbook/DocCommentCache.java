@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs.dsl.docbook;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the docbook converted from the javadoc comment of each member, keyed by owner class and member signature, so
+ * that the comment of an inherited member is converted once rather than once for every subclass.
+ *
+ * <p>The cache does not hold any DOM nodes, as the DOM is not thread-safe. It holds an immutable copy of each fragment,
+ * along with the warnings reported while converting it. Each lookup builds the fragment in the caller's document and
+ * reports the warnings again.</p>
+ */
+public class DocCommentCache {
+    private final ConcurrentMap<String, CachedComment> comments = new ConcurrentHashMap<String, CachedComment>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Returns a copy of the given member's comment, created in the given document. The warnings reported when the
+     * comment was converted are reported to the given listener.
+     *
+     * @return The comment, or null if the comment has not been converted yet.
+     */
+    List<Element> find(String member, Document document, GenerationListener listener) {
+        CachedComment comment = comments.get(member);
+        if (comment == null) {
+            misses.incrementAndGet();
+            listener.commentCacheMiss(member);
+            return null;
+        }
+        hits.incrementAndGet();
+        listener.commentCacheHit(member);
+        for (String warning : comment.warnings) {
+            listener.warning(warning);
+        }
+        List<Element> copy = new ArrayList<Element>(comment.docbook.size());
+        for (Fragment fragment : comment.docbook) {
+            copy.add((Element) fragment.create(document));
+        }
+        return copy;
+    }
+
+    void put(String member, List<Element> comment, List<String> warnings) {
+        List<Fragment> docbook = new ArrayList<Fragment>(comment.size());
+        for (Element element : comment) {
+            docbook.add(Fragment.of(element));
+        }
+        comments.putIfAbsent(member, new CachedComment(docbook, new ArrayList<String>(warnings)));
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    private static class CachedComment {
+        final List<Fragment> docbook;
+        final List<String> warnings;
+
+        CachedComment(List<Fragment> docbook, List<String> warnings) {
+            this.docbook = docbook;
+            this.warnings = warnings;
+        }
+    }
+
+    /**
+     * An element or text node, with its attributes and children.
+     */
+    private static class Fragment {
+        private final String name;
+        private final String text;
+        private final List<String> attributes;
+        private final List<Fragment> children;
+
+        private Fragment(String name, String text, List<String> attributes, List<Fragment> children) {
+            this.name = name;
+            this.text = text;
+            this.attributes = attributes;
+            this.children = children;
+        }
+
+        static Fragment of(Node node) {
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                return new Fragment(null, node.getNodeValue(), null, null);
+            }
+            List<String> attributes = new ArrayList<String>();
+            NamedNodeMap attributeNodes = node.getAttributes();
+            for (int i = 0; i < attributeNodes.getLength(); i++) {
+                attributes.add(attributeNodes.item(i).getNodeName());
+                attributes.add(attributeNodes.item(i).getNodeValue());
+            }
+            List<Fragment> children = new ArrayList<Fragment>();
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                children.add(of(child));
+            }
+            return new Fragment(node.getNodeName(), null, attributes, children);
+        }
+
+        Node create(Document document) {
+            if (name == null) {
+                return document.createTextNode(text);
+            }
+            Element element = document.createElement(name);
+            for (int i = 0; i < attributes.size(); i += 2) {
+                element.setAttribute(attributes.get(i), attributes.get(i + 1));
+            }
+            for (Fragment child : children) {
+                element.appendChild(child.create(document));
+            }
+            return element;
+        }
+    }
+}
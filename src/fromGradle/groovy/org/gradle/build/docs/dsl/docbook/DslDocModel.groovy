@@ -15,6 +15,8 @@
  */
 package org.gradle.build.docs.dsl.docbook
 
+import groovy.xml.dom.DOMCategory
+import org.gradle.build.docs.BuildableDOMCategory
 import org.gradle.build.docs.XIncludeAwareXmlProvider
 import org.gradle.build.docs.dsl.docbook.model.ClassDoc
 import org.gradle.build.docs.dsl.docbook.model.ClassExtensionMetaData
@@ -23,60 +25,150 @@ import org.gradle.build.docs.dsl.source.model.ClassMetaData
 import org.gradle.build.docs.model.ClassMetaDataRepository
 import org.w3c.dom.Document
 
+import javax.xml.parsers.DocumentBuilderFactory
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+
+/**
+ * Builds the {@link ClassDoc} for each documented class. Classes may be built concurrently: each class is built at most
+ * once, by whichever thread first asks for it, and any other thread that asks for the same class waits for that build
+ * to complete.
+ *
+ * <p>The DOM is not thread-safe, so each thread builds into its own document. The elements of a built class doc are
+ * only read after it has been built, and are copied into their final document using {@code importNode()}.</p>
+ */
 class DslDocModel {
     private final File classDocbookDir
-    private final Document document
-    private final Map<String, ClassDoc> classes = [:]
+    private final ConcurrentMap<String, ClassBuild> classes = new ConcurrentHashMap<String, ClassBuild>()
     private final ClassMetaDataRepository<ClassMetaData> classMetaData
     private final Map<String, ClassExtensionMetaData> extensionMetaData
-    private final JavadocConverter javadocConverter
-    private final ClassDocBuilder docBuilder
-    private final LinkedList<String> currentlyBuilding = new LinkedList<String>()
+    private final TypeNameResolver typeNameResolver
+    private final DocCommentCache commentCache = new DocCommentCache()
+    private final JavadocLinkIndex linkIndex = new JavadocLinkIndex()
+    private final ThreadLocal<BuildContext> buildContext = new ThreadLocal<BuildContext>()
 
-    DslDocModel(File classDocbookDir, Document document, ClassMetaDataRepository<ClassMetaData> classMetaData, Map<String, ClassExtensionMetaData> extensionMetaData) {
+    DslDocModel(File classDocbookDir, ClassMetaDataRepository<ClassMetaData> classMetaData, Map<String, ClassExtensionMetaData> extensionMetaData) {
         this.classDocbookDir = classDocbookDir
-        this.document = document
         this.classMetaData = classMetaData
         this.extensionMetaData = extensionMetaData
-        javadocConverter = new JavadocConverter(document, new JavadocLinkConverter(document, new TypeNameResolver(classMetaData), new LinkRenderer(document, this), classMetaData))
-        docBuilder = new ClassDocBuilder(this, javadocConverter)
+        typeNameResolver = new TypeNameResolver(classMetaData)
     }
 
+    /**
+     * Returns the classes built so far, ordered by name.
+     */
     Collection<ClassDoc> getClasses() {
-        return classes.values().findAll {
+        SortedMap<String, ClassDoc> built = new TreeMap<String, ClassDoc>()
+        for (Map.Entry<String, ClassBuild> entry : classes.entrySet()) {
+            if (entry.value.isDone()) {
+                built[entry.key] = await(entry.value)
+            }
+        }
+        return built.values().findAll {
             // TODO: fix?
 //            !it.name.contains('.internal.')
             true
         }
     }
 
+    DocCommentCache getCommentCache() {
+        return commentCache
+    }
+
+    /**
+     * Builds the given classes, and the classes they reference, using the given executor.
+     */
+    void build(Collection<String> classNames, ExecutorService executor) {
+        List<Future<ClassDoc>> builds = []
+        for (String className : classNames) {
+            String name = className
+            builds << executor.submit({
+                use(DOMCategory) {
+                    use(BuildableDOMCategory) {
+                        getClassDoc(name)
+                    }
+                }
+            } as Callable<ClassDoc>)
+        }
+        for (Future<ClassDoc> build : builds) {
+            await(build)
+        }
+    }
+
     boolean isKnownType(String className) {
         return classMetaData.find(className) != null
     }
 
     ClassDoc findClassDoc(String className) {
-        ClassDoc classDoc = classes[className]
-        if (classDoc == null && getFileForClass(className).isFile()) {
-            return getClassDoc(className)
+        if (!classes.containsKey(className) && !getFileForClass(className).isFile()) {
+            return null
         }
-        return classDoc
+        return getClassDoc(className)
     }
 
     ClassDoc getClassDoc(String className) {
-        ClassDoc classDoc = classes[className]
-        if (classDoc == null) {
-            classDoc = loadClassDoc(className)
-            classes[className] = classDoc
-            new ReferencedTypeBuilder(this).build(classDoc)
+        ClassBuild build = classes[className]
+        if (build != null && build.isDone()) {
+            return await(build)
+        }
+        BuildContext context = buildContext.get()
+        if (context != null) {
+            return getClassDoc(context, className)
+        }
+        // The context is only kept while this thread is building, as it refers back to this model and would otherwise
+        // keep it alive for as long as the thread, such as the task's thread, lives
+        context = createBuildContext()
+        buildContext.set(context)
+        try {
+            return getClassDoc(context, className)
+        } finally {
+            buildContext.remove()
         }
-        return classDoc
     }
 
-    private ClassDoc loadClassDoc(String className) {
-        if (currentlyBuilding.contains(className)) {
-            throw new RuntimeException("Cycle building $className. Currently building $currentlyBuilding")
+    private ClassDoc getClassDoc(BuildContext context, String className) {
+        ClassBuild build = classes[className]
+        if (build == null) {
+            ClassBuild newBuild = new ClassBuild(context, { loadClassDoc(context, className) } as Callable<ClassDoc>)
+            build = classes.putIfAbsent(className, newBuild)
+            if (build == null) {
+                newBuild.run()
+                ClassDoc classDoc = await(newBuild)
+                new ReferencedTypeBuilder(this).build(classDoc)
+                return classDoc
+            }
+        }
+        if (!build.isDone()) {
+            waitFor(context, className, build)
+        }
+        return await(build)
+    }
+
+    private void waitFor(BuildContext context, String className, ClassBuild build) {
+        synchronized (classes) {
+            for (ClassBuild blocker = build; blocker != null && !blocker.isDone(); blocker = blocker.owner.waitingFor) {
+                if (blocker.owner == context) {
+                    throw new RuntimeException("Cycle building $className. Currently building $context.currentlyBuilding")
+                }
+            }
+            context.waitingFor = build
         }
-        currentlyBuilding.addLast(className)
+        try {
+            await(build)
+        } finally {
+            synchronized (classes) {
+                context.waitingFor = null
+            }
+        }
+    }
+
+    private ClassDoc loadClassDoc(BuildContext context, String className) {
+        context.currentlyBuilding.addLast(className)
         try {
             ClassMetaData classMetaData = classMetaData.find(className)
             if (!classMetaData) {
@@ -96,9 +188,8 @@ class DslDocModel {
                 if (!classFile.isFile()) {
                     throw new RuntimeException("Docbook source file not found for class '$className' in $classDocbookDir.")
                 }
-                XIncludeAwareXmlProvider provider = new XIncludeAwareXmlProvider()
-                def doc = new ClassDoc(className, provider.parse(classFile), document, classMetaData, extensionMetaData)
-                docBuilder.build(doc)
+                def doc = new ClassDoc(className, context.xmlProvider.parse(classFile), context.document, classMetaData, extensionMetaData)
+                context.docBuilder.build(doc)
                 return doc
             } catch (ClassDocGenerationException e) {
                 throw e
@@ -106,7 +197,22 @@ class DslDocModel {
                 throw new ClassDocGenerationException("Could not load the class documentation for class '$className'.", e)
             }
         } finally {
-            currentlyBuilding.removeLast()
+            context.currentlyBuilding.removeLast()
+        }
+    }
+
+    private BuildContext createBuildContext() {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+        JavadocLinkConverter linkConverter = new JavadocLinkConverter(document, typeNameResolver, new LinkRenderer(document, this), classMetaData, linkIndex)
+        JavadocConverter javadocConverter = new JavadocConverter(document, linkConverter, commentCache)
+        return new BuildContext(document, new ClassDocBuilder(this, javadocConverter))
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get()
+        } catch (ExecutionException e) {
+            throw e.cause
         }
     }
 
@@ -114,4 +220,33 @@ class DslDocModel {
         File classFile = new File(classDocbookDir, "${className}.xml")
         classFile
     }
+
+    /**
+     * The state used by a single thread to build class docs, from the time it first asks for a class which has not been
+     * built until that class has been built.
+     */
+    private static class BuildContext {
+        final Document document
+        final ClassDocBuilder docBuilder
+        final XIncludeAwareXmlProvider xmlProvider = new XIncludeAwareXmlProvider()
+        final LinkedList<String> currentlyBuilding = new LinkedList<String>()
+        ClassBuild waitingFor
+
+        BuildContext(Document document, ClassDocBuilder docBuilder) {
+            this.document = document
+            this.docBuilder = docBuilder
+        }
+    }
+
+    /**
+     * The build of a single class doc, run by the thread that first asked for the class.
+     */
+    private static class ClassBuild extends FutureTask<ClassDoc> {
+        final BuildContext owner
+
+        ClassBuild(BuildContext owner, Callable<ClassDoc> callable) {
+            super(callable)
+            this.owner = owner
+        }
+    }
 }
@@ -21,4 +21,14 @@ public interface GenerationListener {
     void start(String context);
 
     void finish();
+
+    /**
+     * Called when the converted comment of the given member is reused.
+     */
+    void commentCacheHit(String member);
+
+    /**
+     * Called when the comment of the given member has to be converted.
+     */
+    void commentCacheMiss(String member);
 }
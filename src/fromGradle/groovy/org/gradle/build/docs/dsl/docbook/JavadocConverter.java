@@ -35,10 +35,16 @@ public class JavadocConverter {
     private static final Pattern HEADER_PATTERN = Pattern.compile("h(\\d)", Pattern.CASE_INSENSITIVE);
     private final Document document;
     private final JavadocLinkConverter linkConverter;
+    private final DocCommentCache commentCache;
 
     public JavadocConverter(Document document, JavadocLinkConverter linkConverter) {
+        this(document, linkConverter, new DocCommentCache());
+    }
+
+    public JavadocConverter(Document document, JavadocLinkConverter linkConverter, DocCommentCache commentCache) {
         this.document = document;
         this.linkConverter = linkConverter;
+        this.commentCache = commentCache;
     }
 
     public DocComment parse(ClassMetaData classMetaData, GenerationListener listener) {
@@ -60,10 +66,17 @@ public class JavadocConverter {
         try {
             ClassMetaData ownerClass = propertyMetaData.getOwnerClass();
             String rawCommentText = propertyMetaData.getRawCommentText();
+            String member = String.format("property %s.%s", ownerClass.getClassName(), propertyMetaData.getName());
+            List<Element> cached = commentCache.find(member, document, listener);
+            if (cached != null) {
+                return new DocCommentImpl(cached);
+            }
             try {
-                CommentSource commentSource = new InheritedPropertyCommentSource(propertyMetaData, listener);
-                DocCommentImpl docComment = parse(rawCommentText, ownerClass, commentSource, listener);
+                WarningRecordingListener recordingListener = new WarningRecordingListener(listener);
+                CommentSource commentSource = new InheritedPropertyCommentSource(propertyMetaData, recordingListener);
+                DocCommentImpl docComment = parse(rawCommentText, ownerClass, commentSource, recordingListener);
                 adjustGetterComment(docComment);
+                commentCache.put(member, docComment.getDocbook(), recordingListener.warnings);
                 return docComment;
             } catch (Exception e) {
                 throw new GradleException(String.format("Could not convert javadoc comment to docbook.%nClass: %s%nProperty: %s%nComment: %s", ownerClass.getClassName(), propertyMetaData.getName(), rawCommentText), e);
@@ -78,9 +91,17 @@ public class JavadocConverter {
         try {
             ClassMetaData ownerClass = methodMetaData.getOwnerClass();
             String rawCommentText = methodMetaData.getRawCommentText();
+            String member = String.format("method %s.%s", ownerClass.getClassName(), methodMetaData.getOverrideSignature());
+            List<Element> cached = commentCache.find(member, document, listener);
+            if (cached != null) {
+                return new DocCommentImpl(cached);
+            }
             try {
-                CommentSource commentSource = new InheritedMethodCommentSource(listener, methodMetaData);
-                return parse(rawCommentText, ownerClass, commentSource, listener);
+                WarningRecordingListener recordingListener = new WarningRecordingListener(listener);
+                CommentSource commentSource = new InheritedMethodCommentSource(recordingListener, methodMetaData);
+                DocCommentImpl docComment = parse(rawCommentText, ownerClass, commentSource, recordingListener);
+                commentCache.put(member, docComment.getDocbook(), recordingListener.warnings);
+                return docComment;
             } catch (Exception e) {
                 throw new GradleException(String.format(
                         "Could not convert javadoc comment to docbook.%nClass: %s%nMethod: %s%nComment: %s",
@@ -149,6 +170,40 @@ public class JavadocConverter {
         }
     }
 
+    /**
+     * Records the warnings reported while a comment is converted, so that they can be reported again when the
+     * converted comment is reused.
+     */
+    private static class WarningRecordingListener implements GenerationListener {
+        private final GenerationListener listener;
+        private final List<String> warnings = new ArrayList<String>();
+
+        private WarningRecordingListener(GenerationListener listener) {
+            this.listener = listener;
+        }
+
+        public void warning(String message) {
+            warnings.add(message);
+            listener.warning(message);
+        }
+
+        public void start(String context) {
+            listener.start(context);
+        }
+
+        public void finish() {
+            listener.finish();
+        }
+
+        public void commentCacheHit(String member) {
+            listener.commentCacheHit(member);
+        }
+
+        public void commentCacheMiss(String member) {
+            listener.commentCacheMiss(member);
+        }
+    }
+
     private static class HtmlGeneratingTokenHandler extends JavadocLexer.TokenVisitor {
         final DocBookBuilder nodes;
         final List<HtmlElementHandler> elementHandlers = new ArrayList<HtmlElementHandler>();
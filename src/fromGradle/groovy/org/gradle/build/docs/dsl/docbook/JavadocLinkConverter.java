@@ -17,6 +17,7 @@ package org.gradle.build.docs.dsl.docbook;
 
 import org.gradle.build.docs.dsl.source.TypeNameResolver;
 import org.gradle.build.docs.dsl.source.model.ClassMetaData;
+import org.gradle.build.docs.dsl.source.model.EnumConstantMetaData;
 import org.gradle.build.docs.dsl.source.model.MethodMetaData;
 import org.gradle.build.docs.dsl.source.model.TypeMetaData;
 import org.gradle.build.docs.model.ClassMetaDataRepository;
@@ -24,8 +25,6 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,13 +39,20 @@ public class JavadocLinkConverter {
     private final TypeNameResolver typeNameResolver;
     private final LinkRenderer linkRenderer;
     private final ClassMetaDataRepository<ClassMetaData> repository;
+    private final JavadocLinkIndex index;
 
     public JavadocLinkConverter(Document document, TypeNameResolver typeNameResolver, LinkRenderer linkRenderer,
                                 ClassMetaDataRepository<ClassMetaData> repository) {
+        this(document, typeNameResolver, linkRenderer, repository, new JavadocLinkIndex());
+    }
+
+    JavadocLinkConverter(Document document, TypeNameResolver typeNameResolver, LinkRenderer linkRenderer,
+                         ClassMetaDataRepository<ClassMetaData> repository, JavadocLinkIndex index) {
         this.document = document;
         this.typeNameResolver = typeNameResolver;
         this.linkRenderer = linkRenderer;
         this.repository = repository;
+        this.index = index;
     }
 
     /**
@@ -65,27 +71,51 @@ public class JavadocLinkConverter {
     }
 
     private Node doResolve(String link, ClassMetaData classMetaData, GenerationListener listener) {
+        Object target = index.findTarget(link, classMetaData);
+        if (target == null) {
+            target = findTarget(link, classMetaData);
+            index.putTarget(link, classMetaData, target);
+        }
+
+        if (target instanceof TypeMetaData) {
+            return linkRenderer.link((TypeMetaData) target, listener);
+        }
+        if (target instanceof EnumConstantMetaData) {
+            return linkRenderer.link((EnumConstantMetaData) target, listener);
+        }
+        if (target instanceof MethodMetaData) {
+            return linkRenderer.link((MethodMetaData) target, listener);
+        }
+        return null;
+    }
+
+    /**
+     * Locates the target of the given link.
+     *
+     * @return The target, or {@link JavadocLinkIndex#UNRESOLVED} if the link cannot be resolved.
+     */
+    private Object findTarget(String link, ClassMetaData classMetaData) {
         Matcher matcher = LINK_PATTERN.matcher(link);
         if (!matcher.matches()) {
-            return null;
+            return JavadocLinkIndex.UNRESOLVED;
         }
 
         String className = null;
         if (matcher.group(1).length() > 0) {
             className = typeNameResolver.resolve(matcher.group(1), classMetaData);
             if (className == null) {
-                return null;
+                return JavadocLinkIndex.UNRESOLVED;
             }
         }
         if (matcher.group(2) == null) {
-            return linkRenderer.link(new TypeMetaData(className), listener);
+            return new TypeMetaData(className);
         }
 
         ClassMetaData targetClass;
         if (className != null) {
             targetClass = repository.find(className);
             if (targetClass == null) {
-                return null;
+                return JavadocLinkIndex.UNRESOLVED;
             }
         } else {
             targetClass = classMetaData;
@@ -102,7 +132,7 @@ public class JavadocLinkConverter {
                     String type = types[i];
                     Matcher typeMatcher = TYPE_PATTERN.matcher(type);
                     if (!typeMatcher.matches()) {
-                        return null;
+                        return JavadocLinkIndex.UNRESOLVED;
                     }
                     if (i > 0) {
                         signature.append(", ");
@@ -120,32 +150,14 @@ public class JavadocLinkConverter {
         }
 
         if (targetClass.isEnum() && targetClass.getEnumConstant(methodSignature) != null) {
-            return linkRenderer.link(targetClass.getEnumConstant(methodSignature), listener);
+            return targetClass.getEnumConstant(methodSignature);
         }
 
-        MethodMetaData method = findMethod(methodSignature, targetClass);
+        MethodMetaData method = index.findMethod(methodSignature, targetClass);
         if (method == null) {
-            return null;
-        }
-
-        return linkRenderer.link(method, listener);
-    }
-
-    private MethodMetaData findMethod(String name, ClassMetaData targetClass) {
-        List<MethodMetaData> candidates = new ArrayList<MethodMetaData>();
-        for (MethodMetaData methodMetaData : targetClass.getDeclaredMethods()) {
-            if (name.equals(methodMetaData.getOverrideSignature())) {
-                return methodMetaData;
-            }
-            if (name.equals(methodMetaData.getName())) {
-                candidates.add(methodMetaData);
-            }
-        }
-
-        if (candidates.size() != 1) {
-            return null;
+            return JavadocLinkIndex.UNRESOLVED;
         }
-        return candidates.get(0);
+        return method;
     }
 
     /**
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs.dsl.docbook;
+
+import org.gradle.build.docs.dsl.source.model.ClassMetaData;
+import org.gradle.build.docs.dsl.source.model.MethodMetaData;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index of the javadoc links resolved so far, from the class a link appears in and the text of the link to the
+ * target of the link, along with a method signature table for each target class. A link is resolved once per run, after
+ * which each occurrence of the link is a hash lookup. Can be shared between threads.
+ */
+class JavadocLinkIndex {
+    /**
+     * The target of a link that could not be resolved.
+     */
+    static final Object UNRESOLVED = new Object();
+
+    private final ConcurrentMap<LinkKey, Object> targets = new ConcurrentHashMap<LinkKey, Object>();
+    private final ConcurrentMap<String, MethodTable> methodTables = new ConcurrentHashMap<String, MethodTable>();
+
+    /**
+     * Returns the target of the given link, or {@link #UNRESOLVED}, or null if the link has not been resolved yet.
+     */
+    Object findTarget(String link, ClassMetaData classMetaData) {
+        return targets.get(new LinkKey(classMetaData.getClassName(), link));
+    }
+
+    void putTarget(String link, ClassMetaData classMetaData, Object target) {
+        targets.put(new LinkKey(classMetaData.getClassName(), link), target);
+    }
+
+    /**
+     * Finds the method of the given class with the given override signature or, failing that, the only method of the
+     * given class with the given name.
+     *
+     * @return The method, or null if there is no such method or more than one method with the given name.
+     */
+    MethodMetaData findMethod(String name, ClassMetaData targetClass) {
+        MethodTable methodTable = methodTables.get(targetClass.getClassName());
+        if (methodTable == null) {
+            methodTable = new MethodTable(targetClass);
+            methodTables.putIfAbsent(targetClass.getClassName(), methodTable);
+        }
+        return methodTable.find(name);
+    }
+
+    private static class LinkKey {
+        private final String className;
+        private final String link;
+
+        LinkKey(String className, String link) {
+            this.className = className;
+            this.link = link;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LinkKey)) {
+                return false;
+            }
+            LinkKey other = (LinkKey) obj;
+            return className.equals(other.className) && link.equals(other.link);
+        }
+
+        @Override
+        public int hashCode() {
+            return className.hashCode() * 31 + link.hashCode();
+        }
+    }
+
+    private static class MethodTable {
+        private final Map<String, MethodMetaData> bySignature = new HashMap<String, MethodMetaData>();
+        private final Map<String, List<MethodMetaData>> byName = new HashMap<String, List<MethodMetaData>>();
+
+        MethodTable(ClassMetaData classMetaData) {
+            for (MethodMetaData method : classMetaData.getDeclaredMethods()) {
+                if (!bySignature.containsKey(method.getOverrideSignature())) {
+                    bySignature.put(method.getOverrideSignature(), method);
+                }
+                List<MethodMetaData> methods = byName.get(method.getName());
+                if (methods == null) {
+                    methods = new ArrayList<MethodMetaData>();
+                    byName.put(method.getName(), methods);
+                }
+                methods.add(method);
+            }
+        }
+
+        MethodMetaData find(String name) {
+            MethodMetaData method = bySignature.get(name);
+            if (method != null) {
+                return method;
+            }
+            List<MethodMetaData> candidates = byName.get(name);
+            if (candidates == null || candidates.size() != 1) {
+                return null;
+            }
+            return candidates.get(0);
+        }
+    }
+}
@@ -15,11 +15,8 @@
  */
 package org.gradle.build.docs.dsl.docbook;
 
-import org.gradle.internal.UncheckedException;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.StringReader;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,9 +29,12 @@ import java.util.regex.Pattern;
  * <li>Removes block tags.</li>
  * <li>Removes leading and trailing empty lines.</li>
  * </ul>
+ *
+ * A matcher is created once for each pattern used, and is reused for each subsequent match against the input.
  */
 class JavadocScanner {
     private final StringBuilder input = new StringBuilder();
+    private final Map<Pattern, Matcher> matchers = new IdentityHashMap<Pattern, Matcher>();
     private int pos;
     private int markPos;
 
@@ -81,9 +81,7 @@ class JavadocScanner {
     }
 
     public boolean lookingAt(Pattern pattern) {
-        Matcher m = pattern.matcher(input);
-        m.region(pos, input.length());
-        return m.lookingAt();
+        return matcher(pattern).lookingAt();
     }
 
     public String region() {
@@ -109,8 +107,7 @@ class JavadocScanner {
      * found.
      */
     public void find(Pattern pattern) {
-        Matcher m = pattern.matcher(input);
-        m.region(pos, input.length());
+        Matcher m = matcher(pattern);
         if (m.find()) {
             pos = m.start();
         } else {
@@ -122,8 +119,7 @@ class JavadocScanner {
      * Moves the position over the given pattern if currently looking at the pattern. Does nothing if not.
      */
     public void skip(Pattern pattern) {
-        Matcher m = pattern.matcher(input);
-        m.region(pos, input.length());
+        Matcher m = matcher(pattern);
         if (m.lookingAt()) {
             pos = m.end();
         }
@@ -134,23 +130,73 @@ class JavadocScanner {
             return;
         }
 
-        StringBuilder builder = new StringBuilder();
-        try {
-            BufferedReader reader = new BufferedReader(new StringReader(rawCommentText));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.replaceFirst("\\s*\\* ?", "");
-                if (line.startsWith("@")) {
-                    // Ignore the tag section of the comment
-                    break;
+        StringBuilder builder = new StringBuilder(rawCommentText.length());
+        int length = rawCommentText.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && !isEndOfLine(rawCommentText.charAt(lineEnd))) {
+                lineEnd++;
+            }
+            // Remove the first '*' of the line, with the whitespace before it and a single space after it
+            int cutStart = lineEnd;
+            int cutEnd = lineEnd;
+            int asterisk = lineStart;
+            while (asterisk < lineEnd && rawCommentText.charAt(asterisk) != '*') {
+                asterisk++;
+            }
+            if (asterisk < lineEnd) {
+                cutStart = asterisk;
+                while (cutStart > lineStart && isWhitespace(rawCommentText.charAt(cutStart - 1))) {
+                    cutStart--;
+                }
+                cutEnd = asterisk + 1;
+                if (cutEnd < lineEnd && rawCommentText.charAt(cutEnd) == ' ') {
+                    cutEnd++;
                 }
-                builder.append(line);
-                builder.append("\n");
             }
-        } catch (IOException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
+            int firstChar = cutStart > lineStart ? lineStart : cutEnd;
+            if (firstChar < lineEnd && rawCommentText.charAt(firstChar) == '@') {
+                // Ignore the tag section of the comment
+                break;
+            }
+            builder.append(rawCommentText, lineStart, cutStart);
+            builder.append(rawCommentText, cutEnd, lineEnd);
+            builder.append('\n');
+
+            lineStart = lineEnd + 1;
+            if (lineEnd + 1 < length && rawCommentText.charAt(lineEnd) == '\r' && rawCommentText.charAt(lineEnd + 1) == '\n') {
+                lineStart++;
+            }
         }
-        input.insert(pos, builder.toString().trim());
+
+        int start = 0;
+        int end = builder.length();
+        while (start < end && builder.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && builder.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        input.insert(pos, builder, start, end);
+    }
+
+    private static boolean isEndOfLine(char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+    }
+
+    private Matcher matcher(Pattern pattern) {
+        Matcher m = matchers.get(pattern);
+        if (m == null) {
+            m = pattern.matcher(input);
+            matchers.put(pattern, m);
+        }
+        m.region(pos, input.length());
+        return m;
     }
 
     public char getFirst() {
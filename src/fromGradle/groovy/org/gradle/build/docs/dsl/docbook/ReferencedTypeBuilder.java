@@ -27,10 +27,12 @@ public class ReferencedTypeBuilder {
     }
 
     /**
-     * Builds the docs for types referenced by properties and methods of the given class.
+     * Builds the docs for types referenced by properties and methods of the given class. Only the properties declared
+     * by the class are visited, so that its inherited properties are not copied yet. The types referenced by the
+     * inherited properties are built along with the supertypes that declare them.
      */
     public void build(ClassDoc classDoc) {
-        for (PropertyDoc propertyDoc : classDoc.getClassProperties()) {
+        for (PropertyDoc propertyDoc : classDoc.getDeclaredProperties()) {
             String referencedType = propertyDoc.getMetaData().getType().getName();
             if (!referencedType.equals(classDoc.getName())) {
                 model.findClassDoc(referencedType);
@@ -27,8 +27,11 @@ class ClassDoc implements DslElementDoc {
     final ClassMetaData classMetaData
     private final Element classSection
     final ClassExtensionMetaData extensionMetaData
-    private final List<PropertyDoc> classProperties = []
-    private final List<MethodDoc> classMethods = []
+    private final List<PropertyDoc> declaredProperties = []
+    private final List<MethodDoc> declaredMethods = []
+    private final Map<String, Element> inheritedValueTitles = [:]
+    private List<PropertyDoc> classProperties
+    private List<MethodDoc> classMethods
     private final List<BlockDoc> classBlocks = []
     private final List<ClassExtensionDoc> classExtensions = []
     private final Element propertiesTable
@@ -72,16 +75,71 @@ class ClassDoc implements DslElementDoc {
         return classMetaData.incubating
     }
 
-    Collection<PropertyDoc> getClassProperties() { return classProperties }
+    /**
+     * Returns the properties of this class, including inherited properties, ordered by name. The inherited properties
+     * are only copied into this class the first time this method is called; until then they are shared with the
+     * supertypes.
+     */
+    synchronized Collection<PropertyDoc> getClassProperties() {
+        if (classProperties == null) {
+            Map<String, PropertyDoc> properties = new TreeMap<String, PropertyDoc>()
+            for (ClassDoc superType : superTypes) {
+                for (PropertyDoc propertyDoc : superType.classProperties) {
+                    properties[propertyDoc.name] = inherit(propertyDoc)
+                }
+            }
+            for (PropertyDoc propertyDoc : declaredProperties) {
+                properties[propertyDoc.name] = propertyDoc
+            }
+            classProperties = new ArrayList<PropertyDoc>(properties.values())
+        }
+        return classProperties
+    }
+
+    /**
+     * Returns the properties declared by this class, excluding inherited properties.
+     */
+    Collection<PropertyDoc> getDeclaredProperties() {
+        return declaredProperties
+    }
 
     void addClassProperty(PropertyDoc propertyDoc) {
-        classProperties.add(propertyDoc.forClass(this))
+        declaredProperties.add(propertyDoc.forClass(this))
+    }
+
+    /**
+     * Maps the title of an extra attribute column in a supertype to the title of the column in this class which
+     * overrides it.
+     */
+    void addInheritedValueTitle(String inheritedTitle, Element title) {
+        inheritedValueTitles[inheritedTitle] = title
     }
 
-    Collection<MethodDoc> getClassMethods() { return classMethods }
+    /**
+     * Returns the methods of this class, including inherited methods, ordered by signature. The inherited methods are
+     * only copied into this class the first time this method is called; until then they are shared with the supertypes.
+     */
+    synchronized Collection<MethodDoc> getClassMethods() {
+        if (classMethods == null) {
+            List<MethodDoc> methods = new ArrayList<MethodDoc>(declaredMethods)
+            Set<String> signatures = new HashSet<String>()
+            for (MethodDoc methodDoc : declaredMethods) {
+                signatures.add(methodDoc.metaData.overrideSignature)
+            }
+            for (ClassDoc superType : superTypes) {
+                for (MethodDoc methodDoc : superType.classMethods) {
+                    if (signatures.add(methodDoc.metaData.overrideSignature)) {
+                        methods.add(methodDoc.forClass(this))
+                    }
+                }
+            }
+            classMethods = methods.sort { it.metaData.overrideSignature }
+        }
+        return classMethods
+    }
 
     void addClassMethod(MethodDoc methodDoc) {
-        classMethods.add(methodDoc.forClass(this))
+        declaredMethods.add(methodDoc.forClass(this))
     }
 
     Collection<BlockDoc> getClassBlocks() { return classBlocks }
@@ -119,8 +177,6 @@ class ClassDoc implements DslElementDoc {
     def getBlockDetailsSection() { return getSection('Script block details') }
 
     ClassDoc mergeContent() {
-        classProperties.sort { it.name }
-        classMethods.sort { it.metaData.overrideSignature }
         classBlocks.sort { it.name }
         classExtensions.sort { it.pluginId }
         return this
@@ -161,8 +217,40 @@ class ClassDoc implements DslElementDoc {
         return comment[0]
     }
 
+    /**
+     * Finds the given property of this class, including inherited properties. Does not copy the inherited properties.
+     */
     PropertyDoc findProperty(String name) {
-        return classProperties.find { it.name == name }
+        PropertyDoc propertyDoc = declaredProperties.find { it.name == name }
+        return propertyDoc != null ? propertyDoc : findInheritedProperty(name)
+    }
+
+    /**
+     * Finds the given property of the supertypes of this class, as inherited by this class.
+     */
+    PropertyDoc findInheritedProperty(String name) {
+        // Later supertypes override earlier ones
+        for (ClassDoc superType : superTypes.reverse()) {
+            PropertyDoc propertyDoc = superType.findProperty(name)
+            if (propertyDoc != null) {
+                return inherit(propertyDoc)
+            }
+        }
+        return null
+    }
+
+    private PropertyDoc inherit(PropertyDoc propertyDoc) {
+        Map<String, ExtraAttributeDoc> additionalValues = new LinkedHashMap<String, ExtraAttributeDoc>()
+        for (ExtraAttributeDoc attributeDoc : propertyDoc.additionalValues) {
+            Element title = inheritedValueTitles[attributeDoc.key]
+            if (title != null) {
+                ExtraAttributeDoc newAttribute = new ExtraAttributeDoc(title, attributeDoc.valueCell)
+                additionalValues[newAttribute.key] = newAttribute
+            } else {
+                additionalValues[attributeDoc.key] = attributeDoc
+            }
+        }
+        return propertyDoc.forClass(this, additionalValues.values())
     }
 
     BlockDoc getBlock(String name) {
@@ -37,10 +37,19 @@ class ExtraAttributeDoc {
     }
 
     List<Node> getTitle() {
-        return titleCell.childNodes.collect { it }
+        return children(titleCell)
     }
 
     List<Node> getValue() {
-        return valueCell.childNodes.collect { it }
+        return children(valueCell)
+    }
+
+    // Walks the siblings rather than using getChildNodes(), which is not safe for concurrent readers
+    private static List<Node> children(Element cell) {
+        List<Node> children = []
+        for (Node child = cell.firstChild; child != null; child = child.nextSibling) {
+            children << child
+        }
+        return children
     }
 }
@@ -34,6 +34,8 @@ public class ClassLinkMetaData implements Serializable, Attachable<ClassLinkMeta
     private final String packageName;
     private LinkMetaData.Style style;
     private final Map<String, MethodLinkMetaData> methods = new HashMap<String, MethodLinkMetaData>();
+    // Method name -> signatures of the methods with that name, stored with the methods so it is not rebuilt on load
+    private final Map<String, List<String>> signaturesByName = new HashMap<String, List<String>>();
 
     public ClassLinkMetaData(ClassMetaData classMetaData) {
         this.className = classMetaData.getClassName();
@@ -76,9 +78,10 @@ public class ClassLinkMetaData implements Serializable, Attachable<ClassLinkMeta
         }
 
         List<MethodLinkMetaData> candidates = new ArrayList<MethodLinkMetaData>();
-        for (MethodLinkMetaData methodLinkMetaData : methods.values()) {
-            if (methodLinkMetaData.name.equals(method)) {
-                candidates.add(methodLinkMetaData);
+        List<String> signatures = signaturesByName.get(method);
+        if (signatures != null) {
+            for (String signature : signatures) {
+                candidates.add(methods.get(signature));
             }
         }
         if (candidates.isEmpty()) {
@@ -107,20 +110,32 @@ public class ClassLinkMetaData implements Serializable, Attachable<ClassLinkMeta
     }
 
     public void addMethod(MethodMetaData method, LinkMetaData.Style style) {
-        methods.put(method.getOverrideSignature(), new MethodLinkMetaData(method.getName(), method.getOverrideSignature(), style));
+        add(new MethodLinkMetaData(method.getName(), method.getOverrideSignature(), style));
     }
 
     public void addEnumConstant(EnumConstantMetaData enumConstant, LinkMetaData.Style style) {
-        String name = enumConstant.getName();
-        methods.put(name, new EnumConstantLinkMetaData(name, style));
+        add(new EnumConstantLinkMetaData(enumConstant.getName(), style));
     }
 
     public void addBlockMethod(MethodMetaData method) {
-        methods.put(method.getOverrideSignature(), new BlockLinkMetaData(method.getName(), method.getOverrideSignature()));
+        add(new BlockLinkMetaData(method.getName(), method.getOverrideSignature()));
     }
 
     public void addGetterMethod(String propertyName, MethodMetaData method) {
-        methods.put(method.getOverrideSignature(), new GetterLinkMetaData(propertyName, method.getName(), method.getOverrideSignature()));
+        add(new GetterLinkMetaData(propertyName, method.getName(), method.getOverrideSignature()));
+    }
+
+    private void add(MethodLinkMetaData method) {
+        if (methods.put(method.signature, method) != null) {
+            // Replaces the method with the same signature, and so the same name
+            return;
+        }
+        List<String> signatures = signaturesByName.get(method.name);
+        if (signatures == null) {
+            signatures = new ArrayList<String>(1);
+            signaturesByName.put(method.name, signatures);
+        }
+        signatures.add(method.signature);
     }
 
     public void attach(ClassMetaDataRepository<ClassLinkMetaData> linkMetaDataClassMetaDataRepository) {
@@ -62,11 +62,22 @@ class ExtractDslMetaDataTask extends SourceTask {
 
         //updating/modifying the metadata and making sure every type reference across the metadata is fully qualified
         //so, the superClassName, interafaces and types needed by declared properties and declared methods will have fully qualified name
+        //the top-level classes of each package are also indexed, for tasks such as GenerateDefaultImportsTask which need
+        //only the class names and not the rest of the metadata
         TypeNameResolver resolver = new TypeNameResolver(repository)
-        repository.each { name, metaData ->
+        Map<String, Set<String>> packageIndex = new HashMap<String, Set<String>>()
+        repository.each { name, ClassMetaData metaData ->
             fullyQualifyAllTypeNames(metaData, resolver)
+            if (metaData.outerClassName == null) {
+                Set<String> simpleNames = packageIndex[metaData.packageName]
+                if (simpleNames == null) {
+                    simpleNames = new TreeSet<String>()
+                    packageIndex[metaData.packageName] = simpleNames
+                }
+                simpleNames << metaData.simpleName
+            }
         }
-        repository.store(destFile)
+        repository.store(destFile, packageIndex)
 
         println "Parsed $counter classes in ${clock.time}"
     }
@@ -87,43 +87,30 @@ public class GenerateDefaultImportsTask extends DefaultTask {
 
     @TaskAction
     public void generate() throws IOException {
-        SimpleClassMetaDataRepository<ClassMetaData> repository = new SimpleClassMetaDataRepository<ClassMetaData>();
-        repository.load(getMetaDataFile());
+        Map<String, ? extends Collection<String>> packageIndex = loadPackageIndex();
 
-        final Set<String> excludedPrefixes = new HashSet<String>();
-        final Set<String> excludedPackages = new HashSet<String>();
+        PackageTrie excluded = new PackageTrie();
         for (String excludePattern : excludePatterns) {
             if (excludePattern.endsWith(".**")) {
-                String baseName = excludePattern.substring(0, excludePattern.length() - 3);
-                excludedPrefixes.add(baseName + '.');
-                excludedPackages.add(baseName);
+                excluded.add(excludePattern.substring(0, excludePattern.length() - 3), true);
             } else {
-                excludedPackages.add(excludePattern);
+                excluded.add(excludePattern, false);
             }
         }
-        final Set<String> packages = new TreeSet<String>();
+        Set<String> packages = new TreeSet<String>();
         packages.addAll(extraPackages);
-        final Multimap<String, String> simpleNames = HashMultimap.create();
+        Multimap<String, String> simpleNames = HashMultimap.create();
 
-        repository.each(new Action<ClassMetaData>() {
-            public void execute(ClassMetaData classMetaData) {
-                if (classMetaData.getOuterClassName() != null) {
-                    // Ignore inner classes
-                    return;
-                }
-                String packageName = classMetaData.getPackageName();
-                if (excludedPackages.contains(packageName)) {
-                    return;
-                }
-                for (String excludedPrefix : excludedPrefixes) {
-                    if (packageName.startsWith(excludedPrefix)) {
-                        return;
-                    }
-                }
-                simpleNames.put(classMetaData.getSimpleName(), classMetaData.getClassName());
-                packages.add(packageName);
+        for (Map.Entry<String, ? extends Collection<String>> entry : packageIndex.entrySet()) {
+            String packageName = entry.getKey();
+            if (excluded.contains(packageName)) {
+                continue;
             }
-        });
+            for (String simpleName : entry.getValue()) {
+                simpleNames.put(simpleName, packageName.length() == 0 ? simpleName : packageName + '.' + simpleName);
+            }
+            packages.add(packageName);
+        }
 
         for (Map.Entry<String, Collection<String>> entry : simpleNames.asMap().entrySet()) {
             if (entry.getValue().size() > 1) {
@@ -145,4 +132,67 @@ public class GenerateDefaultImportsTask extends DefaultTask {
             writer.close();
         }
     }
+
+    /**
+     * Returns the simple names of the top-level classes in each package. These are read from the index at the end of
+     * the meta-data file, so the classes themselves are only decoded when the file was written without an index.
+     */
+    private Map<String, ? extends Collection<String>> loadPackageIndex() {
+        Map<String, List<String>> packageIndex = SimpleClassMetaDataRepository.loadPackageIndex(getMetaDataFile());
+        if (packageIndex != null) {
+            return packageIndex;
+        }
+
+        SimpleClassMetaDataRepository<ClassMetaData> repository = new SimpleClassMetaDataRepository<ClassMetaData>();
+        repository.load(getMetaDataFile());
+        final Multimap<String, String> classes = HashMultimap.create();
+        repository.each(new Action<ClassMetaData>() {
+            public void execute(ClassMetaData classMetaData) {
+                if (classMetaData.getOuterClassName() == null) {
+                    classes.put(classMetaData.getPackageName(), classMetaData.getSimpleName());
+                }
+            }
+        });
+        return classes.asMap();
+    }
+
+    /**
+     * The excluded packages, as a tree of package name segments. Each node records whether the package itself is
+     * excluded, and whether its subpackages are, so a package is checked with one lookup per segment of its name
+     * rather than by comparing it to every pattern.
+     */
+    private static class PackageTrie {
+        private final Map<String, PackageTrie> children = new HashMap<String, PackageTrie>();
+        private boolean excludesPackage;
+        private boolean excludesSubpackages;
+
+        void add(String packageName, boolean includeSubpackages) {
+            PackageTrie node = this;
+            for (String segment : packageName.split("\\.")) {
+                PackageTrie child = node.children.get(segment);
+                if (child == null) {
+                    child = new PackageTrie();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.excludesPackage = true;
+            node.excludesSubpackages |= includeSubpackages;
+        }
+
+        boolean contains(String packageName) {
+            PackageTrie node = this;
+            String[] segments = packageName.split("\\.");
+            for (int i = 0; i < segments.length; i++) {
+                node = node.children.get(segments[i]);
+                if (node == null) {
+                    return false;
+                }
+                if (node.excludesSubpackages && i < segments.length - 1) {
+                    return true;
+                }
+            }
+            return node.excludesPackage;
+        }
+    }
 }
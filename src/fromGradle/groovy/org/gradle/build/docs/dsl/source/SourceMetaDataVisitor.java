@@ -24,6 +24,7 @@ import org.codehaus.groovy.antlr.treewalker.VisitorAdapter;
 import org.gradle.build.docs.dsl.source.model.*;
 import org.gradle.build.docs.dsl.source.model.ClassMetaData.MetaType;
 import org.gradle.build.docs.model.ClassMetaDataRepository;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.lang.reflect.Modifier;
 import java.util.*;
@@ -56,10 +57,9 @@ public class SourceMetaDataVisitor extends VisitorAdapter {
     }
 
     public void complete() {
-        for (String anImport : imports) {
-            for (ClassMetaData classMetaData : allClasses) {
-                classMetaData.addImport(anImport);
-            }
+        // The classes of a compilation unit share the same imports
+        for (ClassMetaData classMetaData : allClasses) {
+            classMetaData.setImports(imports);
         }
     }
 
@@ -73,7 +73,7 @@ public class SourceMetaDataVisitor extends VisitorAdapter {
     @Override
     public void visitImport(GroovySourceAST t, int visit) {
         if (visit == OPENING_VISIT) {
-            imports.add(extractName(t));
+            imports.add(SymbolTable.intern(extractName(t)));
         }
     }
 
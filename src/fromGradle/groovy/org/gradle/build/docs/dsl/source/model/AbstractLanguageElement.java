@@ -17,6 +17,7 @@
 package org.gradle.build.docs.dsl.source.model;
 
 import org.gradle.api.Transformer;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -46,7 +47,7 @@ public abstract class AbstractLanguageElement implements LanguageElement, Serial
     }
 
     public void addAnnotationTypeName(String annotationType) {
-        annotationNames.add(annotationType);
+        annotationNames.add(SymbolTable.intern(annotationType));
     }
 
     public boolean isDeprecated() {
@@ -59,7 +60,7 @@ public abstract class AbstractLanguageElement implements LanguageElement, Serial
 
     public void resolveTypes(Transformer<String, String> transformer) {
         for (int i = 0; i < annotationNames.size(); i++) {
-            annotationNames.set(i, transformer.transform(annotationNames.get(i)));
+            annotationNames.set(i, SymbolTable.intern(transformer.transform(annotationNames.get(i))));
         }
     }
 }
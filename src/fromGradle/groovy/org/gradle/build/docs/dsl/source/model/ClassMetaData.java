@@ -20,6 +20,7 @@ import org.gradle.api.Action;
 import org.gradle.api.Transformer;
 import org.gradle.build.docs.model.Attachable;
 import org.gradle.build.docs.model.ClassMetaDataRepository;
+import org.gradle.build.docs.model.SymbolTable;
 import org.gradle.util.GUtil;
 
 import java.io.Serializable;
@@ -34,7 +35,7 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     private final String packageName;
     private final MetaType metaType;
     private final boolean isGroovy;
-    private final List<String> imports = new ArrayList<String>();
+    private List<String> imports = new ArrayList<String>();
     private final List<String> interfaceNames = new ArrayList<String>();
     private final Map<String, PropertyMetaData> declaredProperties = new HashMap<String, PropertyMetaData>();
     private final Set<MethodMetaData> declaredMethods = new HashSet<MethodMetaData>();
@@ -46,8 +47,8 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
 
     public ClassMetaData(String className, String packageName, MetaType metaType, boolean isGroovy, String rawClassComment) {
         super(rawClassComment);
-        this.className = className;
-        this.packageName = packageName;
+        this.className = SymbolTable.intern(className);
+        this.packageName = SymbolTable.intern(packageName);
         this.metaType = metaType;
         this.isGroovy = isGroovy;
     }
@@ -90,7 +91,7 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     }
 
     public void setSuperClassName(String superClassName) {
-        this.superClassName = superClassName;
+        this.superClassName = SymbolTable.intern(superClassName);
     }
 
     public ClassMetaData getSuperClass() {
@@ -102,7 +103,7 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     }
 
     public void addInterfaceName(String name) {
-        interfaceNames.add(name);
+        interfaceNames.add(SymbolTable.intern(name));
     }
 
     public List<ClassMetaData> getInterfaces() {
@@ -121,7 +122,7 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     }
 
     public void addInnerClassName(String innerClassName) {
-        innerClassNames.add(innerClassName);
+        innerClassNames.add(SymbolTable.intern(innerClassName));
     }
 
     public String getOuterClassName() {
@@ -129,7 +130,7 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     }
 
     public void setOuterClassName(String outerClassName) {
-        this.outerClassName = outerClassName;
+        this.outerClassName = SymbolTable.intern(outerClassName);
     }
 
     public List<String> getImports() {
@@ -137,7 +138,14 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     }
 
     public void addImport(String importName) {
-        imports.add(importName);
+        imports.add(SymbolTable.intern(importName));
+    }
+
+    /**
+     * Replaces the imports of this class. The given list may be shared by the classes of a compilation unit.
+     */
+    public void setImports(List<String> imports) {
+        this.imports = imports;
     }
 
     public PropertyMetaData addReadableProperty(String name, TypeMetaData type, String rawCommentText, MethodMetaData getterMethod) {
@@ -281,10 +289,10 @@ public class ClassMetaData extends AbstractLanguageElement implements Serializab
     public void resolveTypes(Transformer<String, String> transformer) {
         super.resolveTypes(transformer);
         if (superClassName != null) {
-            superClassName = transformer.transform(superClassName);
+            superClassName = SymbolTable.intern(transformer.transform(superClassName));
         }
         for (int i = 0; i < interfaceNames.size(); i++) {
-            interfaceNames.set(i, transformer.transform(interfaceNames.get(i)));
+            interfaceNames.set(i, SymbolTable.intern(transformer.transform(interfaceNames.get(i))));
         }
         for (PropertyMetaData propertyMetaData : declaredProperties.values()) {
             propertyMetaData.resolveTypes(transformer);
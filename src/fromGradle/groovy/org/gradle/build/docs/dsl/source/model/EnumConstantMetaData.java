@@ -16,6 +16,8 @@
 
 package org.gradle.build.docs.dsl.source.model;
 
+import org.gradle.build.docs.model.SymbolTable;
+
 import java.io.Serializable;
 
 public class EnumConstantMetaData extends AbstractLanguageElement implements Serializable {
@@ -23,7 +25,7 @@ public class EnumConstantMetaData extends AbstractLanguageElement implements Ser
     private final ClassMetaData ownerClass;
 
     public EnumConstantMetaData(String name, ClassMetaData ownerClass) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
         this.ownerClass = ownerClass;
     }
 
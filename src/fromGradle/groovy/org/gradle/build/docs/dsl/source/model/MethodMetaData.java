@@ -16,6 +16,7 @@
 package org.gradle.build.docs.dsl.source.model;
 
 import org.gradle.api.Action;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -32,7 +33,7 @@ public class MethodMetaData extends AbstractLanguageElement implements Serializa
     private TypeMetaData returnType;
 
     public MethodMetaData(String name, ClassMetaData ownerClass) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
         this.ownerClass = ownerClass;
     }
 
@@ -16,6 +16,7 @@
 package org.gradle.build.docs.dsl.source.model;
 
 import org.gradle.api.Action;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.io.Serializable;
 
@@ -27,7 +28,7 @@ public class ParameterMetaData implements Serializable, TypeContainer {
     private TypeMetaData type;
 
     public ParameterMetaData(String name) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
     }
 
     public String getName() {
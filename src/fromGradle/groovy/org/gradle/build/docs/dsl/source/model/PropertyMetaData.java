@@ -16,6 +16,7 @@
 package org.gradle.build.docs.dsl.source.model;
 
 import org.gradle.api.Action;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.io.Serializable;
 
@@ -30,7 +31,7 @@ public class PropertyMetaData extends AbstractLanguageElement implements Seriali
     private MethodMetaData getter;
 
     public PropertyMetaData(String name, ClassMetaData ownerClass) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
         this.ownerClass = ownerClass;
     }
 
@@ -16,6 +16,7 @@
 package org.gradle.build.docs.dsl.source.model;
 
 import org.gradle.api.Action;
+import org.gradle.build.docs.model.SymbolTable;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -37,7 +38,7 @@ public class TypeMetaData implements Serializable, TypeContainer {
     private TypeMetaData lowerBounds;
 
     public TypeMetaData(String name) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
     }
 
     public TypeMetaData() {
@@ -48,7 +49,7 @@ public class TypeMetaData implements Serializable, TypeContainer {
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = SymbolTable.intern(name);
     }
 
     public int getArrayDimensions() {
@@ -80,7 +81,8 @@ public class TypeMetaData implements Serializable, TypeContainer {
         if (upperBounds != null) {
             return upperBounds.getRawType();
         }
-        TypeMetaData rawType = new TypeMetaData(name);
+        TypeMetaData rawType = new TypeMetaData();
+        rawType.name = name;
         rawType.arrayDimensions = arrayDimensions;
         if (varargs) {
             rawType.arrayDimensions++;
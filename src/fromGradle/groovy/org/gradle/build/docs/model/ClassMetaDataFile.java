@@ -0,0 +1,290 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs.model;
+
+import org.gradle.api.Transformer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * The persistent form of a class meta-data repository. Each class is serialized on its own, and the file ends with an
+ * index from class name to the location of that class, so that a single class can be decoded without reading the
+ * rest of the file. The file also contains an index from package name to the simple names of the top-level classes in
+ * that package, which can be read without decoding any classes.
+ *
+ * <pre>
+ * header:   magic, version
+ * classes:  one java serialization stream per class
+ * index:    count, (class name, offset, length) * count
+ * packages: count, (package name, count, simple name * count) * count
+ * trailer:  offset of index, offset of packages
+ * </pre>
+ *
+ * The offset of the packages is -1 when the file was written without a package index. Version 1 files never have a
+ * package index, and their trailer contains only the offset of the index.
+ */
+class ClassMetaDataFile {
+    private static final int MAGIC = 0x434d4446;
+    private static final int VERSION = 2;
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final Map<String, Location> index;
+    private final int packagesOffset;
+
+    private ClassMetaDataFile(File file, ByteBuffer buffer, Map<String, Location> index, int packagesOffset) {
+        this.file = file;
+        this.buffer = buffer;
+        this.index = index;
+        this.packagesOffset = packagesOffset;
+    }
+
+    /**
+     * Maps the given file into memory and reads its index. Does not decode any classes.
+     */
+    static ClassMetaDataFile open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            randomAccessFile.close();
+        }
+
+        if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+            throw new IOException(String.format("%s is not a class meta-data file.", file));
+        }
+        int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException(String.format("%s has unsupported version %s.", file, version));
+        }
+        int indexOffset = version == 1 ? buffer.getInt(buffer.limit() - 4) : buffer.getInt(buffer.limit() - 8);
+        int packagesOffset = version == 1 ? -1 : buffer.getInt(buffer.limit() - 4);
+
+        ByteBuffer indexBuffer = buffer.duplicate();
+        indexBuffer.position(indexOffset);
+        DataInputStream indexInput = new DataInputStream(new ByteBufferInputStream(indexBuffer));
+        int count = indexInput.readInt();
+        Map<String, Location> index = new LinkedHashMap<String, Location>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String className = indexInput.readUTF();
+            index.put(SymbolTable.intern(className), new Location(indexInput.readInt(), indexInput.readInt()));
+        }
+        return new ClassMetaDataFile(file, buffer, index, packagesOffset);
+    }
+
+    /**
+     * Writes the given classes to the given file, without a package index.
+     */
+    static void store(File file, Map<String, ?> classes) throws IOException {
+        store(file, classes, null);
+    }
+
+    /**
+     * Writes the given classes and package index to the given file.
+     *
+     * @param packages The simple names of the top-level classes in each package, or null for no package index.
+     */
+    static void store(File file, final Map<String, ?> classes, Map<String, ? extends Collection<String>> packages) throws IOException {
+        store(file, classes.keySet(), new Transformer<Object, String>() {
+            public Object transform(String className) {
+                return classes.get(className);
+            }
+        }, packages);
+    }
+
+    /**
+     * Writes the given classes and package index to the given file. Each class is requested from the given
+     * transformer in turn, just before it is written, and is not kept afterwards.
+     *
+     * @param packages The simple names of the top-level classes in each package, or null for no package index.
+     */
+    static void store(File file, Collection<String> classNames, Transformer<?, String> classes, Map<String, ? extends Collection<String>> packages) throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            Map<String, Location> index = new LinkedHashMap<String, Location>();
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            for (String className : new TreeSet<String>(classNames)) {
+                classBytes.reset();
+                ObjectOutputStream objOutputStream = new ObjectOutputStream(classBytes);
+                objOutputStream.writeObject(classes.transform(className));
+                objOutputStream.close();
+                index.put(className, new Location(output.size(), classBytes.size()));
+                classBytes.writeTo(output);
+            }
+
+            int indexOffset = output.size();
+            output.writeInt(index.size());
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue().offset);
+                output.writeInt(entry.getValue().length);
+            }
+
+            int packagesOffset = -1;
+            if (packages != null) {
+                packagesOffset = output.size();
+                output.writeInt(packages.size());
+                for (Map.Entry<String, ? extends Collection<String>> entry : new TreeMap<String, Collection<String>>(packages).entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    // A collection which is not a set may hold duplicates, so write the count of the names written
+                    Set<String> simpleNames = new TreeSet<String>(entry.getValue());
+                    output.writeInt(simpleNames.size());
+                    for (String simpleName : simpleNames) {
+                        output.writeUTF(simpleName);
+                    }
+                }
+            }
+
+            output.writeInt(indexOffset);
+            output.writeInt(packagesOffset);
+            output.close();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    Set<String> getClassNames() {
+        return index.keySet();
+    }
+
+    boolean contains(String className) {
+        return index.containsKey(className);
+    }
+
+    /**
+     * Reads the package index.
+     *
+     * @return The simple names of the top-level classes in each package, or null if the file has no package index.
+     */
+    Map<String, List<String>> readPackages() throws IOException {
+        if (packagesOffset < 0) {
+            return null;
+        }
+        ByteBuffer packagesBuffer = buffer.duplicate();
+        packagesBuffer.position(packagesOffset);
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(packagesBuffer));
+        int count = input.readInt();
+        Map<String, List<String>> packages = new LinkedHashMap<String, List<String>>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String packageName = input.readUTF();
+            int classCount = input.readInt();
+            List<String> simpleNames = new ArrayList<String>(classCount);
+            for (int j = 0; j < classCount; j++) {
+                simpleNames.add(input.readUTF());
+            }
+            packages.put(packageName, simpleNames);
+        }
+        return packages;
+    }
+
+    /**
+     * Decodes the given class.
+     *
+     * @return The class, or null if the file does not contain the given class.
+     */
+    Object read(String className) {
+        Location location = index.get(className);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer classBuffer = buffer.duplicate();
+        classBuffer.position(location.offset);
+        classBuffer.limit(location.offset + location.length);
+        try {
+            ObjectInputStream objInputStream = new InterningObjectInputStream(new ByteBufferInputStream(classBuffer));
+            return objInputStream.readObject();
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("Could not read meta-data for class '%s' from %s.", className, file), e);
+        }
+    }
+
+    private static class Location {
+        final int offset;
+        final int length;
+
+        Location(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Each class is read from its own stream, so names shared between classes are canonicalized here rather than
+     * by the serialization back-references. Only strings which look like class, property, method or type names are
+     * canonicalized, so that comment text, which is rarely shared, is not added to the symbol table.
+     */
+    private static class InterningObjectInputStream extends ObjectInputStream {
+        InterningObjectInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) {
+            return obj instanceof String && isName((String) obj) ? SymbolTable.intern((String) obj) : obj;
+        }
+
+        private static boolean isName(String value) {
+            if (value.length() == 0 || !Character.isJavaIdentifierStart(value.charAt(0))) {
+                return false;
+            }
+            for (int i = 1; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch != '.' && !Character.isJavaIdentifierPart(ch)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs.model;
+
+import groovy.lang.Closure;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Transformer;
+import org.gradle.api.UnknownDomainObjectException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A read-mostly repository which memory maps a file written by {@link SimpleClassMetaDataRepository#store(java.io.File)}
+ * and decodes each class the first time it is requested. Only the classes that are requested are decoded, and each of
+ * them is kept until the repository is closed, so that every request for a class returns the same instance.
+ *
+ * <p>{@link #close()} drops the mapping, which the JVM unmaps once it has been garbage collected.</p>
+ */
+public class MappedClassMetaDataRepository<T extends Attachable<T>> implements ClassMetaDataRepository<T> {
+    private final Map<String, T> decoded = new HashMap<String, T>();
+    private final Map<String, T> added = new HashMap<String, T>();
+    private ClassMetaDataFile file;
+
+    public void load(File repoFile) {
+        try {
+            file = ClassMetaDataFile.open(repoFile);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not load meta-data from %s.", repoFile), e);
+        }
+        decoded.clear();
+        added.clear();
+    }
+
+    /**
+     * Releases the mapped file and the decoded classes. The repository is empty afterwards.
+     */
+    public synchronized void close() {
+        file = null;
+        decoded.clear();
+        added.clear();
+    }
+
+    public T get(String fullyQualifiedClassName) {
+        T t = find(fullyQualifiedClassName);
+        if (t == null) {
+            throw new UnknownDomainObjectException(String.format("No meta-data is available for class '%s'.", fullyQualifiedClassName));
+        }
+        return t;
+    }
+
+    public synchronized T find(String fullyQualifiedClassName) {
+        T t = added.get(fullyQualifiedClassName);
+        if (t == null) {
+            t = decoded.get(fullyQualifiedClassName);
+        }
+        if (t == null) {
+            t = decode(fullyQualifiedClassName);
+            if (t == null) {
+                return null;
+            }
+            decoded.put(fullyQualifiedClassName, t);
+        }
+        t.attach(this);
+        return t;
+    }
+
+    /**
+     * Returns true if this repository contains the given class. Does not decode the class.
+     */
+    public synchronized boolean contains(String fullyQualifiedClassName) {
+        return added.containsKey(fullyQualifiedClassName) || (file != null && file.contains(fullyQualifiedClassName));
+    }
+
+    public synchronized void put(String fullyQualifiedClassName, T metaData) {
+        added.put(fullyQualifiedClassName, metaData);
+        decoded.remove(fullyQualifiedClassName);
+    }
+
+    public void each(Closure cl) {
+        for (String className : getClassNames()) {
+            cl.call(new Object[]{className, find(className)});
+        }
+    }
+
+    public void each(Action<? super T> action) {
+        for (String className : getClassNames()) {
+            action.execute(find(className));
+        }
+    }
+
+    /**
+     * Writes a repository with an entry for each class in this repository, created by the given transformer, to the
+     * given file. The classes which have not been requested yet are decoded one at a time and are not kept, so this
+     * does not hold the whole repository in memory.
+     */
+    public <S> void storeTransformed(File repoFile, final Transformer<? extends S, ? super T> transformer) {
+        final Set<String> classNames = getClassNames();
+        try {
+            ClassMetaDataFile.store(repoFile, classNames, new Transformer<Object, String>() {
+                public Object transform(String className) {
+                    T t;
+                    synchronized (MappedClassMetaDataRepository.this) {
+                        t = added.get(className);
+                        if (t == null) {
+                            t = decoded.get(className);
+                        }
+                        if (t == null) {
+                            t = decode(className);
+                        }
+                    }
+                    t.attach(MappedClassMetaDataRepository.this);
+                    return transformer.transform(t);
+                }
+            }, null);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write meta-data to %s.", repoFile), e);
+        }
+    }
+
+    private synchronized Set<String> getClassNames() {
+        Set<String> classNames = new LinkedHashSet<String>();
+        if (file != null) {
+            classNames.addAll(file.getClassNames());
+        }
+        classNames.addAll(added.keySet());
+        return classNames;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T decode(String fullyQualifiedClassName) {
+        return file == null ? null : (T) file.read(fullyQualifiedClassName);
+    }
+}
@@ -29,13 +29,10 @@ public class SimpleClassMetaDataRepository<T extends Attachable<T>> implements C
     @SuppressWarnings("unchecked")
     public void load(File repoFile) {
         try {
-            FileInputStream inputStream = new FileInputStream(repoFile);
-            try {
-                ObjectInputStream objInputStream = new ObjectInputStream(new BufferedInputStream(inputStream));
-                classes.clear();
-                classes.putAll((Map<String, T>) objInputStream.readObject());
-            } finally {
-                inputStream.close();
+            ClassMetaDataFile file = ClassMetaDataFile.open(repoFile);
+            classes.clear();
+            for (String className : file.getClassNames()) {
+                classes.put(className, (T) file.read(className));
             }
         } catch (Exception e) {
             throw new GradleException(String.format("Could not load meta-data from %s.", repoFile), e);
@@ -44,19 +41,39 @@ public class SimpleClassMetaDataRepository<T extends Attachable<T>> implements C
 
     public void store(File repoFile) {
         try {
-            FileOutputStream outputStream = new FileOutputStream(repoFile);
-            try {
-                ObjectOutputStream objOutputStream = new ObjectOutputStream(new BufferedOutputStream(outputStream));
-                objOutputStream.writeObject(classes);
-                objOutputStream.close();
-            } finally {
-                outputStream.close();
-            }
+            ClassMetaDataFile.store(repoFile, classes);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write meta-data to %s.", repoFile), e);
+        }
+    }
+
+    /**
+     * Writes this repository to the given file, along with an index of the top-level classes in each package which can
+     * be read using {@link #loadPackageIndex(java.io.File)}.
+     *
+     * @param packageIndex The simple names of the top-level classes in each package.
+     */
+    public void store(File repoFile, Map<String, ? extends Collection<String>> packageIndex) {
+        try {
+            ClassMetaDataFile.store(repoFile, classes, packageIndex);
         } catch (IOException e) {
             throw new GradleException(String.format("Could not write meta-data to %s.", repoFile), e);
         }
     }
 
+    /**
+     * Reads the package index from the given file, without decoding any classes.
+     *
+     * @return The simple names of the top-level classes in each package, or null if the file has no package index.
+     */
+    public static Map<String, List<String>> loadPackageIndex(File repoFile) {
+        try {
+            return ClassMetaDataFile.open(repoFile).readPackages();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not load package index from %s.", repoFile), e);
+        }
+    }
+
     public T get(String fullyQualifiedClassName) {
         T t = find(fullyQualifiedClassName);
         if (t == null) {
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs.model;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Canonicalizes the names held by the meta-data model, so that a name such as {@code java.lang.String} that is
+ * referenced from many classes, properties and methods is held by a single String instance. Used both when extracting
+ * meta-data from source and when reading it back from a meta-data file.
+ */
+public class SymbolTable {
+    private static final Interner<String> SYMBOLS = Interners.newWeakInterner();
+
+    private SymbolTable() {
+    }
+
+    public static String intern(String symbol) {
+        return symbol == null ? null : SYMBOLS.intern(symbol);
+    }
+}
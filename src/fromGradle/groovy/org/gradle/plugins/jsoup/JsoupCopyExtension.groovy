@@ -22,22 +22,52 @@ import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.file.FileCopyDetails
 import org.gradle.api.internal.ClosureBackedAction
+import org.gradle.plugins.jsoup.JsoupDocumentTransformer.CopiedDocument
 import org.jsoup.nodes.Document
 
+/**
+ * Adds jsoup transforms to a {@link Copy} task.
+ *
+ * The transforms do not run while a document is copied. Each document is copied as usual, so it goes through all of the
+ * filters, renames and {@code eachFile} actions of the copy. Once the copy has finished, the transforms are applied to
+ * the documents it wrote, at their final destination. This happens in a {@code doLast} action registered with the
+ * first transform, so other {@code doLast} actions registered before it see the documents untransformed.
+ *
+ * Documents are transformed one at a time, unless {@code maxParallelism} is raised, in which case each transform must
+ * be safe to run on several documents at the same time.
+ */
 class JsoupCopyExtension {
 
     public static final List<String> DEFAULT_TRANSFORM_EXTENSIONS = ["html"].asImmutable()
 
     final Copy task
 
+    /**
+     * The maximum number of documents to transform at the same time. Transforms must be thread-safe to raise this.
+     */
+    int maxParallelism = 1
+
+    /**
+     * The transforms registered with this task, which are applied to each document in a single pass.
+     */
+    final JsoupTransformPipeline pipeline = new JsoupTransformPipeline()
+
+    private final List<CopiedDocument> copiedDocuments = []
+    private File currentPlugin
+
     JsoupCopyExtension(Copy task) {
         this.task = task
     }
 
     void plugins(Object... plugins) {
-        task.project.files(plugins).each {
-            task.inputs.file(it)
-            task.project.apply from: it, to: this
+        for (File plugin : task.project.files(plugins)) {
+            task.inputs.file(plugin)
+            currentPlugin = plugin
+            try {
+                task.project.apply from: plugin, to: this
+            } finally {
+                currentPlugin = null
+            }
         }
     }
 
@@ -50,11 +80,56 @@ class JsoupCopyExtension {
     }
 
     void transform(String[] extensions, Action<JsoupTransformTarget> action) {
-        task.eachFile { FileCopyDetails fcd ->
-            if (extensions.any { fcd.name.endsWith(".$it") }) {
-                fcd.filter(fileCopyDetails: fcd, action: action, JsoupFilterReader)
+        if (pipeline.empty) {
+            // Registered once the task runs, so that it is the last eachFile action, and only sees the files which are
+            // copied, at their final destination
+            task.doFirst {
+                task.eachFile { FileCopyDetails fcd ->
+                    transformFile(fcd)
+                }
+            }
+            task.doLast {
+                transformCopiedFiles()
             }
         }
+        // Name the transform after the plugin which registered it, so that slow plugins can be found
+        String displayName = "transform ${pipeline.size() + 1}"
+        if (currentPlugin != null) {
+            displayName = "$displayName (from $currentPlugin.name)"
+        }
+        pipeline.add(displayName, extensions, action)
+    }
+
+    /**
+     * Records the given file to be transformed once it has been copied, if any transform applies to it. The file is
+     * otherwise copied as usual, so it goes through all of the filters and renames of the copy.
+     */
+    void transformFile(FileCopyDetails fcd) {
+        Action<JsoupTransformTarget> action = pipeline.actionFor(fcd.name)
+        if (action != null) {
+            copiedDocuments << new CopiedDocument(fcd, action, fcd.relativePath.getFile(task.destinationDir))
+        }
+    }
+
+    /**
+     * Transforms the files recorded during the copy, at their final destination.
+     */
+    void transformCopiedFiles() {
+        // A file which is copied more than once is only transformed as it was last copied
+        Map<File, CopiedDocument> documents = [:]
+        for (CopiedDocument document : copiedDocuments) {
+            documents[document.destFile] = document
+        }
+        copiedDocuments.clear()
+
+        new JsoupDocumentTransformer(maxParallelism).transform(documents.values())
+        logTimings()
+    }
+
+    void logTimings() {
+        pipeline.describeTimings().each { String timing ->
+            task.logger.info("Jsoup {}", timing)
+        }
     }
 
     void transformDocument(Action<Document> action) {
@@ -80,5 +155,4 @@ class JsoupCopyExtension {
     TaskInputs getInputs() {
         task.inputs
     }
-
 }
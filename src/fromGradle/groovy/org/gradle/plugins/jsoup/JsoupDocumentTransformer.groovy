@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.plugins.jsoup
+
+import org.gradle.api.Action
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCopyDetails
+import org.jsoup.Jsoup
+import org.jsoup.nodes.Document
+
+import java.nio.charset.Charset
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Transforms copied documents in place, on a pool of threads. With more than one thread, the transforms must be
+ * thread-safe.
+ *
+ * Each document is parsed from its destination file once the copy has written it, so the file has been renamed and
+ * filtered like any other, and is written back to the same file. At most one document per thread is held in memory at
+ * a time.
+ */
+class JsoupDocumentTransformer {
+    // The documents used to be read and written through a filter, which used the default charset
+    private static final String CHARSET = Charset.defaultCharset().name()
+
+    private final int maxParallelism
+
+    JsoupDocumentTransformer(int maxParallelism) {
+        this.maxParallelism = maxParallelism
+    }
+
+    /**
+     * Transforms the given documents, and waits for all of them to be written.
+     */
+    void transform(Collection<CopiedDocument> documents) {
+        if (documents.isEmpty()) {
+            return
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallelism, documents.size())))
+        try {
+            Map<File, Future<?>> results = [:]
+            for (CopiedDocument document : documents) {
+                CopiedDocument current = document
+                results[current.destFile] = executor.submit({ current.transform() } as Callable)
+            }
+            results.each { File destFile, Future<?> result ->
+                try {
+                    result.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Could not transform $destFile.", e.cause)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    /**
+     * A document which has been copied to its destination file, and the transforms which apply to it.
+     */
+    static class CopiedDocument {
+        final FileCopyDetails fileCopyDetails
+        final Action<JsoupTransformTarget> action
+        final File destFile
+
+        CopiedDocument(FileCopyDetails fileCopyDetails, Action<JsoupTransformTarget> action, File destFile) {
+            this.fileCopyDetails = fileCopyDetails
+            this.action = action
+            this.destFile = destFile
+        }
+
+        void transform() {
+            Document document = Jsoup.parse(destFile, CHARSET)
+            action.execute(new JsoupTransformTarget(document, fileCopyDetails))
+            // jsoup 1.6.3 can only serialize a document to a String
+            destFile.withWriter(CHARSET) { Writer writer ->
+                writer.write(document.toString())
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.plugins.jsoup
+
+import org.gradle.api.Action
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The transforms registered with a copy task. All of the transforms which apply to a document are run in order, on the
+ * same parsed document, and the time taken by each transform is recorded.
+ */
+class JsoupTransformPipeline {
+    private final List<Transform> transforms = []
+
+    void add(String displayName, String[] extensions, Action<JsoupTransformTarget> action) {
+        transforms << new Transform(displayName, extensions, action)
+    }
+
+    boolean isEmpty() {
+        return transforms.empty
+    }
+
+    int size() {
+        return transforms.size()
+    }
+
+    /**
+     * Returns an action which runs the transforms that apply to the given file, or null if none apply.
+     */
+    Action<JsoupTransformTarget> actionFor(String fileName) {
+        List<Transform> matching = []
+        for (Transform transform : transforms) {
+            if (transform.matches(fileName)) {
+                matching << transform
+            }
+        }
+        if (matching.empty) {
+            return null
+        }
+        return new Action<JsoupTransformTarget>() {
+            void execute(JsoupTransformTarget target) {
+                for (Transform transform : matching) {
+                    transform.execute(target)
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the total time, in milliseconds, taken by each transform, in the order the transforms were registered.
+     */
+    Map<String, Long> getTimings() {
+        Map<String, Long> timings = [:]
+        for (Transform transform : transforms) {
+            timings[transform.displayName] = TimeUnit.NANOSECONDS.toMillis(transform.nanos.get())
+        }
+        return timings
+    }
+
+    /**
+     * Returns a description of the time taken by each transform, slowest first.
+     */
+    List<String> describeTimings() {
+        List<Transform> sorted = transforms.sort(false) { Transform a, Transform b -> b.nanos.get() <=> a.nanos.get() }
+        return sorted.collect { Transform transform ->
+            "$transform.displayName: ${TimeUnit.NANOSECONDS.toMillis(transform.nanos.get())}ms for $transform.documents documents".toString()
+        }
+    }
+
+    private static class Transform {
+        final String displayName
+        final List<String> suffixes
+        final Action<JsoupTransformTarget> action
+        final AtomicLong nanos = new AtomicLong()
+        final AtomicInteger documents = new AtomicInteger()
+
+        Transform(String displayName, String[] extensions, Action<JsoupTransformTarget> action) {
+            this.displayName = displayName
+            this.suffixes = extensions.collect { ".$it".toString() }
+            this.action = action
+        }
+
+        boolean matches(String fileName) {
+            for (String suffix : suffixes) {
+                if (fileName.endsWith(suffix)) {
+                    return true
+                }
+            }
+            return false
+        }
+
+        void execute(JsoupTransformTarget target) {
+            long start = System.nanoTime()
+            try {
+                action.execute(target)
+            } finally {
+                nanos.addAndGet(System.nanoTime() - start)
+                documents.incrementAndGet()
+            }
+        }
+    }
+}
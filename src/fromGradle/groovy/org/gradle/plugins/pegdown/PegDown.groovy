@@ -16,15 +16,34 @@
 
 package org.gradle.plugins.pegdown
 
+import org.gradle.api.GradleException
+import org.gradle.api.InvalidUserDataException
+import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.SourceTask
 import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
 import org.pegdown.Extensions
-import org.gradle.api.InvalidUserDataException
 import org.pegdown.PegDownProcessor
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Renders markdown to HTML.
+ *
+ * Renders either a single source file to {@code destination}, or each source file to a file with the same relative
+ * path in {@code destinationDir}. Sources are rendered in parallel using up to {@code maxParallelism} threads, each of
+ * which keeps its own processor. When rendering to a directory incrementally, only the changed sources are rendered.
+ * The file rendered from each source is recorded, so that it can be deleted once the source has been removed.
+ */
 class PegDown extends SourceTask {
 
     @Input
@@ -37,32 +56,140 @@ class PegDown extends SourceTask {
     @Input
     String outputEncoding
 
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
     private destination
-    
+
+    private destinationDir
+
     void setDestination(destination) {
         this.destination = destination
     }
 
     @OutputFile
+    @Optional
     File getDestination() {
-        project.file(destination)
+        destination == null ? null : project.file(destination)
+    }
+
+    void setDestinationDir(destinationDir) {
+        this.destinationDir = destinationDir
+    }
+
+    @OutputDirectory
+    @Optional
+    File getDestinationDir() {
+        destinationDir == null ? null : project.file(destinationDir)
     }
 
     @TaskAction
-    void process() {
+    void process(IncrementalTaskInputs inputs) {
+        if (!((destination != null) ^ (destinationDir != null))) {
+            throw new InvalidUserDataException("Must specify exactly 1 of destination or destinationDir.")
+        }
+
+        Map<File, File> results = [:]
+        if (destination != null) {
+            results[getSource().singleFile] = getDestination()
+        } else {
+            results = findChangedSources(inputs)
+        }
+
         int optionsValue = getCalculatedOptions()
-        PegDownProcessor processor = new PegDownProcessor(optionsValue)
-        String markdown = getSource().singleFile.getText(getInputEncoding())
-        String html = processor.markdownToHtml(markdown)
-        getDestination().write(html, getOutputEncoding())
+        ThreadLocal<PegDownProcessor> processors = new ThreadLocal<PegDownProcessor>()
+        ExecutorService executor = Executors.newFixedThreadPool(maxParallelism)
+        try {
+            Map<File, Future<?>> renders = [:]
+            results.each { File source, File result ->
+                renders[source] = executor.submit({
+                    PegDownProcessor processor = processors.get()
+                    if (processor == null) {
+                        processor = new PegDownProcessor(optionsValue)
+                        processors.set(processor)
+                    }
+                    String html = processor.markdownToHtml(source.getText(getInputEncoding()))
+                    result.parentFile.mkdirs()
+                    result.write(html, getOutputEncoding())
+                } as Callable)
+            }
+            renders.each { File source, Future<?> render ->
+                try {
+                    render.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Could not render $source.", e.cause)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
     }
-    
+
+    /**
+     * Returns the sources which need to be rendered into the destination directory, and the file to render each into.
+     * The outputs of removed sources are deleted.
+     */
+    Map<File, File> findChangedSources(IncrementalTaskInputs inputs) {
+        Map<File, File> outputs = readOutputs()
+        Set<File> changed = new HashSet<File>()
+        inputs.outOfDate { InputFileDetails details ->
+            changed << details.file
+        }
+        boolean renderAll = !inputs.incremental
+
+        Map<File, File> current = [:]
+        Map<File, File> results = [:]
+        getSource().visit { FileVisitDetails details ->
+            if (!details.directory) {
+                String name = details.name.replaceAll('\\.[^.]*$', '') + '.html'
+                File result = details.relativePath.replaceLastName(name).getFile(getDestinationDir())
+                current[details.file] = result
+                if (renderAll || changed.contains(details.file)) {
+                    results[details.file] = result
+                }
+            }
+        }
+        // Deletes the outputs of removed sources, including those which are not reported to a non-incremental
+        // execution, and of sources whose output has moved, unless another source is rendered into the same file
+        Set<File> stale = outputs.values() as Set
+        stale.removeAll(current.values())
+        project.delete(stale)
+        writeOutputs(current)
+        return results
+    }
+
+    /**
+     * Returns the file rendered from each source into the destination directory by earlier executions of this task.
+     */
+    Map<File, File> readOutputs() {
+        Map<File, File> outputs = [:]
+        File recordFile = outputsRecordFile()
+        if (recordFile.isFile()) {
+            recordFile.eachLine { String line ->
+                String[] paths = line.split('\t')
+                outputs[new File(paths[0])] = new File(paths[1])
+            }
+        }
+        outputs
+    }
+
+    void writeOutputs(Map<File, File> outputs) {
+        outputsRecordFile().withPrintWriter { PrintWriter writer ->
+            outputs.each { File source, File output ->
+                writer.println("$source.absolutePath\t$output.absolutePath")
+            }
+        }
+    }
+
+    File outputsRecordFile() {
+        new File(temporaryDir, "outputs.txt")
+    }
+
     int getCalculatedOptions() {
         getOptions().inject(0) { acc, val -> acc | toOptionValue(val) } as int
     }
     
     protected int toOptionValue(String optionName) {
-        String upName = val.toUpperCase()
+        String upName = optionName.toUpperCase()
         try {
             Extensions."$upName"
         } catch (MissingPropertyException e) {
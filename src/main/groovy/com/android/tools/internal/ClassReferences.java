@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.internal;
+
+import com.google.common.collect.Sets;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The names of the classes a class file refers to, read from its constant pool, along with what
+ * is needed to tell whether the class is a JUnit test.
+ *
+ * Besides the classes it refers to directly, the types named in the descriptors and signatures
+ * of its fields and methods are included, so this may report more classes than the class
+ * actually loads, but not fewer, except for classes it only finds by reflection.
+ */
+class ClassReferences {
+
+    private static final Pattern TYPE_IN_DESCRIPTOR = Pattern.compile("L([\\w/$]+)[;<]");
+    private static final int ACC_INTERFACE = 0x0200;
+    private static final int ACC_ABSTRACT = 0x0400;
+    private static final Set<String> TEST_ANNOTATIONS =
+            Sets.newHashSet("Lorg/junit/Test;", "Lorg/junit/runner/RunWith;");
+
+    /** The binary names, such as com.example.Foo$Bar, of the classes referred to. */
+    final Set<String> classes;
+    /** The binary name of the super class, or null for java.lang.Object. */
+    final String superClass;
+    /** Whether the class is an interface or an abstract class. */
+    final boolean isAbstract;
+    /** Whether the class refers to the JUnit 4 annotations which make a class a test. */
+    final boolean hasTestAnnotations;
+
+    private ClassReferences(Set<String> classes, String superClass, boolean isAbstract,
+            boolean hasTestAnnotations) {
+        this.classes = classes;
+        this.superClass = superClass;
+        this.isAbstract = isAbstract;
+        this.hasTestAnnotations = hasTestAnnotations;
+    }
+
+    /**
+     * Reads the given class file.
+     */
+    static ClassReferences read(InputStream classFile) throws IOException {
+        DataInputStream input = new DataInputStream(classFile);
+        if (input.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file.");
+        }
+        input.readUnsignedShort(); // minor version
+        input.readUnsignedShort(); // major version
+
+        Set<String> references = Sets.newHashSet();
+        boolean hasTestAnnotations = false;
+        Matcher matcher = TYPE_IN_DESCRIPTOR.matcher("");
+        int count = input.readUnsignedShort();
+        String[] strings = new String[count];
+        // The index of the name of each Class constant
+        int[] classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8, which includes the names of classes and all descriptors
+                    strings[i] = input.readUTF();
+                    hasTestAnnotations |= TEST_ANNOTATIONS.contains(strings[i]);
+                    matcher.reset(strings[i]);
+                    while (matcher.find()) {
+                        references.add(matcher.group(1).replace('/', '.'));
+                    }
+                    break;
+                case 7: // Class
+                    classes[i] = input.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    input.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    input.skipBytes(8);
+                    i++;
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    input.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    input.skipBytes(3);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + ".");
+            }
+        }
+
+        for (int index : classes) {
+            String name = strings[index];
+            // The descriptors of array classes have already been matched
+            if (name != null && !name.startsWith("[")) {
+                references.add(name.replace('/', '.'));
+            }
+        }
+
+        int accessFlags = input.readUnsignedShort();
+        input.readUnsignedShort(); // this class
+        int superClassIndex = input.readUnsignedShort();
+        String superClass = superClassIndex == 0
+                ? null : strings[classes[superClassIndex]].replace('/', '.');
+        return new ClassReferences(references, superClass,
+                (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) != 0, hasTestAnnotations);
+    }
+
+    /**
+     * Returns the name of the top-level class which contains the given class, or the given class
+     * itself if it is a top-level class.
+     */
+    static String topLevelClass(String className) {
+        int index = className.indexOf('$');
+        return index < 0 ? className : className.substring(0, index);
+    }
+}
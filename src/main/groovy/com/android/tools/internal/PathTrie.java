@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.internal;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Maps directories to values, and finds the value of the deepest directory containing a path.
+ *
+ * Paths are compared a whole name at a time, so /base/foo contains /base/foo/A.java but not
+ * /base/foobar/A.java, and looking up a path takes one step per name in the path, however many
+ * directories there are.
+ */
+class PathTrie<T> {
+
+    private static final Splitter SPLITTER =
+            Splitter.on(CharMatcher.anyOf("/\\")).omitEmptyStrings();
+
+    private final Map<String, PathTrie<T>> children = Maps.newHashMap();
+    private T value;
+
+    /**
+     * Associates the given directory, and everything below it, with the given value.
+     */
+    void put(String directory, T value) {
+        PathTrie<T> node = this;
+        for (String name : SPLITTER.split(directory)) {
+            PathTrie<T> child = node.children.get(name);
+            if (child == null) {
+                child = new PathTrie<T>();
+                node.children.put(name, child);
+            }
+            node = child;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Returns the value of the deepest directory which contains the given path, or null if no
+     * directory does.
+     */
+    T find(String path) {
+        PathTrie<T> node = this;
+        T found = value;
+        for (String name : SPLITTER.split(path)) {
+            node = node.children.get(name);
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = node.value;
+            }
+        }
+        return found;
+    }
+}
@@ -18,13 +18,12 @@ package com.android.tools.internal;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
-import com.google.common.base.Splitter;
-
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
+import org.gradle.BuildAdapter;
 import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
@@ -32,12 +31,14 @@ import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.ProjectDependency;
-import org.gradle.api.logging.LogLevel;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.testing.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -49,10 +50,24 @@ import java.util.Set;
  *
  * When passed a file listing absolute paths, one per line,
  * e.g. -Pcom.android.build.presubmitChangedFiles=/path/to/file
- * creates a runPresubmitTests task that depends on buildDependents
- * of all the subprojects that contain files in that list.
- * The buildDependents task task also builds and tests all subprojects
- * that transitively depend on the modified subprojects.
+ * creates a runPresubmitTests task that depends on the test tasks
+ * of all the subprojects that contain files in that list, and of
+ * all the subprojects that transitively depend on them.
+ *
+ * Each file belongs to the subproject with the deepest directory
+ * containing it, so a project nested in another project's directory
+ * owns its own files.
+ *
+ * When the build is run with -Pcom.android.build.presubmitImpactIndex,
+ * each test task which runs records which classes of the build each of
+ * its test classes depends on, in a {@link TestImpactIndex}. When all
+ * of the changed files are Java or Groovy sources, and a test task's
+ * index is up to date, only the tests which depend on the changed
+ * classes are run. Otherwise all of the tests of the affected
+ * subprojects are run. An index is out of date once the classes it was
+ * built from are compiled again, or once any source file of the
+ * projects on the test task's classpath, other than the changed files,
+ * differs from when it was built.
  *
  * The file could be generated by something like
  * <pre>
@@ -65,10 +80,31 @@ import java.util.Set;
 public class PresubmitRunner implements Plugin<Project> {
 
     private static final String PRESUBMIT_FILES_PROPERTY = "com.android.build.presubmitChangedFiles";
+    private static final String IMPACT_INDEX_PROPERTY = "com.android.build.presubmitImpactIndex";
 
     @Override
     public void apply(final Project project) {
 
+        // Building an index reads every test class, so it is only done when asked for
+        if (project.hasProperty(IMPACT_INDEX_PROPERTY)) {
+            project.subprojects(new Action<Project>() {
+                @Override
+                public void execute(Project subProject) {
+                    subProject.getTasks().withType(Test.class, new Action<Test>() {
+                        @Override
+                        public void execute(Test test) {
+                            test.doFirst(new Action<Task>() {
+                                @Override
+                                public void execute(Task task) {
+                                    writeImpactIndex((Test) task);
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        }
+
         if (project.hasProperty(PRESUBMIT_FILES_PROPERTY)) {
             final Logger logger = project.getLogger();
             logger.info("Creating presubmit task.");
@@ -84,23 +120,234 @@ public class PresubmitRunner implements Plugin<Project> {
                 return;
             }
 
-            // Find projects that contain files that have changed.
-            project.subprojects(new Action<Project>() {
+            // The project dependencies are only known once every project has been configured.
+            project.getGradle().addBuildListener(new BuildAdapter() {
                 @Override
-                public void execute(final Project subProject) {
-                    String subProjectPath = subProject.getProjectDir().toString();
-                    for (String file : files) {
-                        if (file.startsWith(subProjectPath)) {
-                            Object subProjectTestTask = subProject.getTasks().findByName("buildDependents");
-                            if (subProjectTestTask != null) {
-                                runPresubmitTestsTask.dependsOn(subProjectTestTask);
-                            }
-                            break;
+                public void projectsEvaluated(Gradle gradle) {
+                    Set<Project> affectedProjects = findAffectedProjects(project, files);
+                    logger.info("Running presubmit tests of " + Joiner.on(", ").join(affectedProjects));
+                    ChangedClasses changedClasses = findChangedClasses(project, files);
+                    for (Project affectedProject : affectedProjects) {
+                        Task testTask = affectedProject.getTasks().findByName("test");
+                        if (testTask == null) {
+                            continue;
                         }
+                        if (changedClasses != null && testTask instanceof Test
+                                && !selectTests((Test) testTask, changedClasses, logger)) {
+                            continue;
+                        }
+                        runPresubmitTestsTask.dependsOn(testTask);
                     }
                 }
             });
         }
     }
 
+    /**
+     * Returns the subprojects which contain the given files, and the subprojects which
+     * transitively depend on them.
+     */
+    static Set<Project> findAffectedProjects(Project rootProject, Iterable<String> files) {
+        PathTrie<Project> projectDirs = new PathTrie<Project>();
+        Multimap<Project, Project> dependents = ArrayListMultimap.create();
+        for (Project subProject : rootProject.getSubprojects()) {
+            projectDirs.put(subProject.getProjectDir().getAbsolutePath(), subProject);
+            for (Configuration configuration : subProject.getConfigurations()) {
+                for (Dependency dependency : configuration.getDependencies()) {
+                    if (dependency instanceof ProjectDependency) {
+                        dependents.put(((ProjectDependency) dependency).getDependencyProject(), subProject);
+                    }
+                }
+            }
+        }
+
+        Set<Project> affectedProjects = Sets.newLinkedHashSet();
+        List<Project> queue = Lists.newArrayList();
+        for (String file : files) {
+            Project owner = projectDirs.find(file);
+            if (owner != null && affectedProjects.add(owner)) {
+                queue.add(owner);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Project affectedProject = queue.remove(queue.size() - 1);
+            for (Project dependent : dependents.get(affectedProject)) {
+                if (affectedProjects.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return affectedProjects;
+    }
+
+    /**
+     * Returns the top-level classes declared in the given files, or null if any of the files in
+     * a subproject is not a Java or Groovy source file of that subproject.
+     */
+    static ChangedClasses findChangedClasses(Project rootProject, Iterable<String> files) {
+        PathTrie<Project> projectDirs = new PathTrie<Project>();
+        for (Project subProject : rootProject.getSubprojects()) {
+            projectDirs.put(subProject.getProjectDir().getAbsolutePath(), subProject);
+        }
+
+        ChangedClasses changedClasses = new ChangedClasses();
+        for (String file : files) {
+            changedClasses.files.add(new File(file).getAbsolutePath());
+            Project owner = projectDirs.find(file);
+            if (owner == null) {
+                continue;
+            }
+            JavaPluginConvention javaConvention =
+                    owner.getConvention().findPlugin(JavaPluginConvention.class);
+            if (javaConvention == null || !(file.endsWith(".java") || file.endsWith(".groovy"))) {
+                return null;
+            }
+            String className = null;
+            for (SourceSet sourceSet : javaConvention.getSourceSets()) {
+                for (File srcDir : sourceSet.getAllSource().getSrcDirs()) {
+                    String srcPath = srcDir.getAbsolutePath() + File.separator;
+                    if (file.startsWith(srcPath)) {
+                        String path = file.substring(srcPath.length());
+                        className = path.substring(0, path.lastIndexOf('.'))
+                                .replace(File.separatorChar, '.');
+                        changedClasses.classes.add(className);
+                        if (sourceSet.getName().equals(SourceSet.TEST_SOURCE_SET_NAME)) {
+                            changedClasses.testClasses.put(owner, className);
+                        }
+                    }
+                }
+            }
+            if (className == null) {
+                return null;
+            }
+        }
+        return changedClasses;
+    }
+
+    /**
+     * Restricts the given test task to the test classes which depend on the changed classes,
+     * using its impact index.
+     *
+     * @return false if none of its test classes depend on the changed classes.
+     */
+    static boolean selectTests(Test test, ChangedClasses changedClasses, Logger logger) {
+        TestImpactIndex index;
+        try {
+            index = TestImpactIndex.read(getImpactIndexFile(test));
+        } catch (IOException e) {
+            logger.warn("Unable to read test impact index of " + test, e);
+            index = null;
+        }
+        List<File> classpath = getBuildClasspath(test);
+        classpath.add(test.getTestClassesDir());
+        if (index == null || !index.isUpToDate(classpath,
+                getSourceFiles(getBuildProjects(test)), changedClasses.files)) {
+            logger.info("Running all tests of {}, as its test impact index is out of date.", test);
+            return true;
+        }
+
+        Set<String> tests = Sets.newTreeSet(index.findTests(changedClasses.classes));
+        for (String testClass : changedClasses.testClasses.get(test.getProject())) {
+            if (index.isTest(testClass)) {
+                tests.add(testClass);
+            } else if (!index.contains(testClass)) {
+                // A new class, which may or may not be a test, so it can't be added to the filter
+                logger.info("Running all tests of {}, as {} is new.", test, testClass);
+                return true;
+            }
+            // Otherwise it is a helper class, and the tests which use it have been found
+        }
+        if (tests.isEmpty()) {
+            logger.info("Skipping {}, as none of its tests depend on the changed classes.", test);
+            return false;
+        }
+        logger.info("Running {} tests of {}: {}", tests.size(), test, Joiner.on(", ").join(tests));
+        // The filter narrows down the tests selected by the task's own include patterns
+        for (String testClass : tests) {
+            test.getFilter().includeTestsMatching(testClass);
+            test.getFilter().includeTestsMatching(testClass + "$*");
+        }
+        return true;
+    }
+
+    static void writeImpactIndex(Test test) {
+        File indexFile = getImpactIndexFile(test);
+        try {
+            TestImpactIndex.build(test.getTestClassesDir(), getBuildClasspath(test),
+                    getSourceFiles(getBuildProjects(test))).write(indexFile);
+        } catch (IOException e) {
+            // Without an index, presubmit runs all of the tests
+            test.getLogger().warn("Unable to write test impact index of " + test, e);
+            indexFile.delete();
+        }
+    }
+
+    static File getImpactIndexFile(Test test) {
+        return new File(test.getProject().getBuildDir(), "presubmit/" + test.getName() + "-impact-index.txt");
+    }
+
+    /**
+     * Returns the entries of the test task's classpath which are built by this build, leaving
+     * out prebuilt libraries, which cannot be affected by a change.
+     */
+    static List<File> getBuildClasspath(Test test) {
+        PathTrie<Project> buildDirs = getBuildDirs(test);
+        List<File> classpath = Lists.newArrayList();
+        for (File entry : test.getClasspath()) {
+            if (buildDirs.find(entry.getAbsolutePath()) != null) {
+                classpath.add(entry);
+            }
+        }
+        return classpath;
+    }
+
+    /**
+     * Returns the test task's project, and the projects which build entries of its classpath.
+     */
+    static Set<Project> getBuildProjects(Test test) {
+        PathTrie<Project> buildDirs = getBuildDirs(test);
+        Set<Project> projects = Sets.newLinkedHashSet();
+        projects.add(test.getProject());
+        for (File entry : test.getClasspath()) {
+            Project project = buildDirs.find(entry.getAbsolutePath());
+            if (project != null) {
+                projects.add(project);
+            }
+        }
+        return projects;
+    }
+
+    private static PathTrie<Project> getBuildDirs(Test test) {
+        PathTrie<Project> buildDirs = new PathTrie<Project>();
+        for (Project project : test.getProject().getRootProject().getAllprojects()) {
+            buildDirs.put(project.getBuildDir().getAbsolutePath(), project);
+        }
+        return buildDirs;
+    }
+
+    /**
+     * Returns the source files of every source set of the given projects.
+     */
+    static List<File> getSourceFiles(Iterable<Project> projects) {
+        List<File> sourceFiles = Lists.newArrayList();
+        for (Project project : projects) {
+            JavaPluginConvention javaConvention =
+                    project.getConvention().findPlugin(JavaPluginConvention.class);
+            if (javaConvention != null) {
+                for (SourceSet sourceSet : javaConvention.getSourceSets()) {
+                    sourceFiles.addAll(sourceSet.getAllSource().getFiles());
+                }
+            }
+        }
+        return sourceFiles;
+    }
+
+    static class ChangedClasses {
+        /** The absolute paths of the changed files. */
+        final Set<String> files = Sets.newHashSet();
+        /** The top-level classes declared in the changed files. */
+        final Set<String> classes = Sets.newHashSet();
+        /** The changed classes of each project's test source set. */
+        final Multimap<Project, String> testClasses = ArrayListMultimap.create();
+    }
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Records which classes of the build each test class depends on, so that a presubmit run only
+ * runs the tests which depend on the classes that have changed.
+ *
+ * The index is built from the compiled test classes, by following the classes each one refers
+ * to through the class directories and jars of the build, so every class the test could load is
+ * found. Classes outside the build, such as those of prebuilt libraries, are not followed.
+ *
+ * Each class of the test classes is also recorded as a test or not. A class is a test if it is
+ * concrete, and either it or one of its super classes extends junit.framework.TestCase or uses
+ * the JUnit 4 test annotations. A class whose super classes lead outside the build, other than
+ * to the JDK, is taken to be a test, so that it is run rather than left out.
+ *
+ * The index also records the length and modification time of the source files of the build, as
+ * they were when the index was built. The index is out of date once any of the classes it was
+ * built from has been compiled again, or once any of those source files, other than the ones
+ * being presubmitted, has changed, for example after switching branches without compiling. The
+ * presubmit run then falls back to running all of the tests.
+ */
+class TestImpactIndex {
+
+    private static final String HEADER = "test-impact-index-3";
+    private static final String TEST = "test";
+    private static final String OTHER = "other";
+
+    private final long timestamp;
+    /** The length and modification time of each source file of the build, by absolute path. */
+    private final Map<String, String> sources;
+    /**
+     * The top-level classes each top-level class of the test classes depends on, including
+     * itself.
+     */
+    private final Map<String, Set<String>> tests;
+    /** The top-level classes of the test classes which are tests. */
+    private final Set<String> testClasses;
+
+    private TestImpactIndex(long timestamp, Map<String, String> sources,
+            Map<String, Set<String>> tests, Set<String> testClasses) {
+        this.timestamp = timestamp;
+        this.sources = sources;
+        this.tests = tests;
+        this.testClasses = testClasses;
+    }
+
+    /**
+     * Builds the index of the test classes in the given directory.
+     *
+     * @param classpath the class directories and jars of the build which the tests may use,
+     *                  which should not include those of prebuilt libraries.
+     * @param sourceFiles the source files of the build, as they are when the index is built.
+     */
+    static TestImpactIndex build(File testClassesDir, Iterable<File> classpath,
+            Iterable<File> sourceFiles) throws IOException {
+        long timestamp = System.currentTimeMillis();
+        List<File> searchPath = Lists.newArrayList(testClassesDir);
+        for (File entry : classpath) {
+            searchPath.add(entry);
+        }
+        ClassFinder finder = new ClassFinder(searchPath);
+        try {
+            Map<String, Set<String>> tests = Maps.newTreeMap();
+            Set<String> testClasses = Sets.newHashSet();
+            for (String testClass : findTopLevelClasses(testClassesDir)) {
+                tests.put(testClass, finder.findDependencies(testClass));
+                if (finder.isTest(testClass)) {
+                    testClasses.add(testClass);
+                }
+            }
+            return new TestImpactIndex(timestamp, getSourceState(sourceFiles), tests, testClasses);
+        } finally {
+            finder.close();
+        }
+    }
+
+    /**
+     * Reads the index from the given file, or returns null if there is none.
+     */
+    static TestImpactIndex read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Iterator<String> lines = Files.readLines(file, Charsets.UTF_8).iterator();
+            if (!lines.hasNext() || !lines.next().equals(HEADER) || !lines.hasNext()) {
+                return null;
+            }
+            long timestamp = Long.parseLong(lines.next());
+            // Source paths may contain spaces, so each is followed by a tab
+            Map<String, String> sources = Maps.newHashMap();
+            int sourceCount = Integer.parseInt(lines.next());
+            for (int i = 0; i < sourceCount; i++) {
+                String line = lines.next();
+                int separator = line.lastIndexOf('\t');
+                sources.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+            Map<String, Set<String>> tests = Maps.newTreeMap();
+            Set<String> testClasses = Sets.newHashSet();
+            Splitter splitter = Splitter.on(' ').omitEmptyStrings();
+            while (lines.hasNext()) {
+                Iterator<String> names = splitter.split(lines.next()).iterator();
+                if (names.hasNext()) {
+                    String kind = names.next();
+                    String testClass = names.next();
+                    tests.put(testClass, Sets.newHashSet(names));
+                    if (kind.equals(TEST)) {
+                        testClasses.add(testClass);
+                    }
+                }
+            }
+            return new TestImpactIndex(timestamp, sources, tests, testClasses);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed test impact index " + file + ".", e);
+        }
+    }
+
+    void write(File file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append(HEADER).append('\n');
+        content.append(timestamp).append('\n');
+        content.append(sources.size()).append('\n');
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(sources).entrySet()) {
+            content.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        Joiner joiner = Joiner.on(' ');
+        for (Map.Entry<String, Set<String>> entry : tests.entrySet()) {
+            content.append(testClasses.contains(entry.getKey()) ? TEST : OTHER).append(' ');
+            content.append(entry.getKey()).append(' ');
+            joiner.appendTo(content, Sets.newTreeSet(entry.getValue())).append('\n');
+        }
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    /**
+     * Returns true if none of the class files in the given directories, and none of the given
+     * jars, have changed since the index was built, and the source files of the build are the
+     * same as they were then, apart from the changed files.
+     *
+     * @param sourceFiles the current source files of the build.
+     * @param changedFiles the absolute paths of the source files being presubmitted.
+     */
+    boolean isUpToDate(Iterable<File> classpath, Iterable<File> sourceFiles,
+            Set<String> changedFiles) {
+        for (File entry : classpath) {
+            if (isModifiedSince(entry, timestamp)) {
+                return false;
+            }
+        }
+        Map<String, String> currentSources = getSourceState(sourceFiles);
+        for (String path : Sets.union(sources.keySet(), currentSources.keySet())) {
+            if (!changedFiles.contains(path) && !Objects.equal(sources.get(path), currentSources.get(path))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the given top-level class was one of the test classes.
+     */
+    boolean contains(String className) {
+        return tests.containsKey(className);
+    }
+
+    /**
+     * Returns true if the given top-level class was one of the test classes, and is a test.
+     */
+    boolean isTest(String className) {
+        return testClasses.contains(className);
+    }
+
+    /**
+     * Returns the tests which depend on any of the given top-level classes.
+     */
+    Set<String> findTests(Set<String> changedClasses) {
+        Set<String> affectedTests = Sets.newTreeSet();
+        for (Map.Entry<String, Set<String>> entry : tests.entrySet()) {
+            if (testClasses.contains(entry.getKey())
+                    && !Collections.disjoint(entry.getValue(), changedClasses)) {
+                affectedTests.add(entry.getKey());
+            }
+        }
+        return affectedTests;
+    }
+
+    private static Map<String, String> getSourceState(Iterable<File> sourceFiles) {
+        Map<String, String> sources = Maps.newHashMap();
+        for (File file : sourceFiles) {
+            sources.put(file.getAbsolutePath(), file.length() + " " + file.lastModified());
+        }
+        return sources;
+    }
+
+    private static boolean isModifiedSince(File file, long timestamp) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (isModifiedSince(child, timestamp)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        return file.lastModified() > timestamp;
+    }
+
+    private static List<String> findTopLevelClasses(File classesDir) {
+        List<String> classes = Lists.newArrayList();
+        findTopLevelClasses(classesDir, "", classes);
+        return classes;
+    }
+
+    private static void findTopLevelClasses(File dir, String packagePrefix, List<String> classes) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                findTopLevelClasses(file, packagePrefix + name + ".", classes);
+            } else if (name.endsWith(".class") && name.indexOf('$') < 0) {
+                classes.add(packagePrefix + name.substring(0, name.length() - 6));
+            }
+        }
+    }
+
+    /**
+     * Finds classes in a search path of class directories and jars, and the classes they refer
+     * to, reading each class file at most once.
+     */
+    private static class ClassFinder {
+        private final List<File> dirs = Lists.newArrayList();
+        private final List<ZipFile> jars = Lists.newArrayList();
+        /** Each class which has been read, or null for classes not in the search path. */
+        private final Map<String, ClassReferences> classes = Maps.newHashMap();
+
+        ClassFinder(List<File> searchPath) throws IOException {
+            for (File entry : searchPath) {
+                if (entry.isDirectory()) {
+                    dirs.add(entry);
+                } else if (entry.isFile()) {
+                    jars.add(new ZipFile(entry));
+                }
+            }
+        }
+
+        /**
+         * Returns the top-level classes in the search path which the given class depends on,
+         * directly or indirectly.
+         */
+        Set<String> findDependencies(String className) throws IOException {
+            Set<String> visited = Sets.newHashSet(className);
+            List<String> queue = Lists.newArrayList(className);
+            Set<String> dependencies = Sets.newHashSet();
+            while (!queue.isEmpty()) {
+                String current = queue.remove(queue.size() - 1);
+                ClassReferences references = find(current);
+                if (references == null) {
+                    continue;
+                }
+                dependencies.add(ClassReferences.topLevelClass(current));
+                for (String reference : references.classes) {
+                    if (visited.add(reference)) {
+                        queue.add(reference);
+                    }
+                }
+            }
+            return dependencies;
+        }
+
+        /**
+         * Returns true if the given class is a concrete class which JUnit would run as a test.
+         */
+        boolean isTest(String className) throws IOException {
+            ClassReferences references = find(className);
+            if (references == null || references.isAbstract) {
+                return false;
+            }
+            while (!references.hasTestAnnotations) {
+                String superClass = references.superClass;
+                if (superClass == null) {
+                    return false;
+                }
+                if (superClass.equals("junit.framework.TestCase")) {
+                    return true;
+                }
+                references = find(superClass);
+                if (references == null) {
+                    // A super class outside the build, which may itself be a test
+                    return !superClass.startsWith("java.") && !superClass.startsWith("javax.");
+                }
+            }
+            return true;
+        }
+
+        private ClassReferences find(String className) throws IOException {
+            if (classes.containsKey(className)) {
+                return classes.get(className);
+            }
+            ClassReferences references = null;
+            InputStream classFile = open(className.replace('.', '/') + ".class");
+            if (classFile != null) {
+                try {
+                    references = ClassReferences.read(classFile);
+                } finally {
+                    classFile.close();
+                }
+            }
+            classes.put(className, references);
+            return references;
+        }
+
+        private InputStream open(String path) throws IOException {
+            for (File dir : dirs) {
+                File file = new File(dir, path);
+                if (file.isFile()) {
+                    return new FileInputStream(file);
+                }
+            }
+            for (ZipFile jar : jars) {
+                ZipEntry entry = jar.getEntry(path);
+                if (entry != null) {
+                    return jar.getInputStream(entry);
+                }
+            }
+            return null;
+        }
+
+        void close() throws IOException {
+            for (ZipFile jar : jars) {
+                jar.close();
+            }
+        }
+    }
+}
@@ -17,13 +17,16 @@
 package com.android.tools.internal.emulator
 
 import org.gradle.api.DefaultTask
-import org.gradle.api.logging.LogLevel
-import org.gradle.api.tasks.InputDirectory
+import org.gradle.api.file.FileTree
+import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.TaskAction
-import org.gradle.tooling.BuildException
 /**
  * Custom task to build emulator.
+ *
+ * <p>The sources are not declared as task inputs, as Gradle would then hash the whole of external/qemu before every
+ * build. Instead the task keeps its own snapshot of the {@link #getSources() sources}, which only reads the files that
+ * have been touched since the last build, and is up to date when none of them have changed.</p>
  */
 class BuildEmulator extends DefaultTask {
 
@@ -31,47 +34,121 @@ class BuildEmulator extends DefaultTask {
     File output
 
     /**
-     * Since we don't have a good understanding of emulator build, treat
-     * the whole project (external/qemu) as the input folder.
+     * Patterns, relative to the project (external/qemu), of the files which are sources of the
+     * emulator. Everything is included by default.
      */
-    @InputDirectory
-    File getInputDir() {
-        return project.projectDir
-    }
+    @Input
+    Set<String> includes = []
+
+    /**
+     * Patterns of the files which are not sources of the emulator. The output directory is always
+     * excluded.
+     */
+    @Input
+    Set<String> excludes = ['**/.git/**', '**/*.pyc']
 
+    @Input
     boolean windows = false
 
-    @TaskAction
-    void build() {
+    /**
+     * The maximum number of build steps which run at the same time.
+     */
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
+    /**
+     * The number of lines of output of a failed build step to include in the failure.
+     */
+    int failureOutputLines = 100
+
+    /**
+     * Where the snapshot of the sources of the last successful build is kept. Defaults to a file in
+     * the task's temporary directory.
+     */
+    File snapshotFile
+
+    private SourceSnapshot currentSnapshot
 
-        String qemu2_deps_command = "$project.projectDir/android/scripts/build-qemu-android-deps.sh --verbose --force";
-        String qemu2_command = "$project.projectDir/android/scripts/build-qemu-android.sh --verbose --force --target=arm64,mips64,x86_64 " + (windows? "--host=windows-x86,windows-x86_64" : "")
+    BuildEmulator() {
+        outputs.upToDateWhen { !sourcesChanged() }
+    }
 
-        String command = windows ?
-                "$project.projectDir/android-rebuild.sh --verbose --mingw --out-dir=$output" :
-                "$project.projectDir/android-rebuild.sh --verbose --out-dir=$output"
+    File getSnapshotFile() {
+        return snapshotFile ?: new File(temporaryDir, 'sources.snapshot')
+    }
 
-        StringBuilder stdout = new StringBuilder()
-        StringBuilder stderr = new StringBuilder()
+    void include(String... patterns) {
+        includes.addAll(patterns)
+    }
 
-        Process qemu2_deps_p = qemu2_deps_command.execute()
-        qemu2_deps_p.consumeProcessOutput(stdout, stderr)
-        int qemu2_deps_result = qemu2_deps_p.waitFor()
+    void exclude(String... patterns) {
+        excludes.addAll(patterns)
+    }
 
-        Process qemu2_p = qemu2_command.execute()
-        qemu2_p.consumeProcessOutput(stdout, stderr)
-        int qemu2_result = qemu2_p.waitFor()
+    FileTree getSources() {
+        File projectDir = project.projectDir
+        Set<String> includes = getIncludes()
+        Set<String> excludes = getExcludes()
+        String outputPath = output.absolutePath
+        String projectPath = projectDir.absolutePath + File.separator
+        return project.fileTree(projectDir) {
+            include includes
+            exclude excludes
+            if (outputPath.startsWith(projectPath)) {
+                exclude outputPath.substring(projectPath.length()).replace(File.separatorChar, '/' as char) + '/**'
+            }
+        }
+    }
 
-        Process p = command.execute()
-        p.consumeProcessOutput(stdout, stderr)
+    /**
+     * Returns true if the sources have changed since the last successful build.
+     */
+    boolean sourcesChanged() {
+        List<String> changes = snapshot().changesSince(SourceSnapshot.load(getSnapshotFile()))
+        if (changes.empty) {
+            return false
+        }
+        logger.info("${changes.size()} emulator sources have changed since the last build, such as ${changes.take(10)}.")
+        return true
+    }
 
-        int result = p.waitFor()
+    SourceSnapshot snapshot() {
+        if (currentSnapshot == null) {
+            currentSnapshot = SourceSnapshot.load(getSnapshotFile()).update(getSources())
+        }
+        return currentSnapshot
+    }
 
-        logger.log(LogLevel.INFO, stdout.toString())
-        logger.log(LogLevel.ERROR, stderr.toString())
+    @TaskAction
+    void build() {
+        String scripts = "$project.projectDir/android/scripts"
+        List<String> qemu2Deps = ["$scripts/build-qemu-android-deps.sh", "--verbose", "--force"]
+        List<String> qemu2 = ["$scripts/build-qemu-android.sh", "--verbose", "--force", "--target=arm64,mips64,x86_64"]
+        if (windows) {
+            qemu2 << "--host=windows-x86,windows-x86_64"
+        }
+        List<String> emulator = ["$project.projectDir/android-rebuild.sh", "--verbose"]
+        if (windows) {
+            emulator << "--mingw"
+        }
+        emulator << "--out-dir=$output"
 
-        if (result != 0) {
-            throw new BuildException("Failed to run command. See console output", null)
+        // Each script uses what the one before it has built
+        ProcessRunner runner = new ProcessRunner(logger, maxParallelism, failureOutputLines)
+        ProcessRunner.Step depsStep = runner.add("build-qemu-android-deps", qemu2Deps*.toString())
+        ProcessRunner.Step qemu2Step = runner.add("build-qemu-android", qemu2*.toString(), depsStep)
+        runner.add("android-rebuild", emulator*.toString(), qemu2Step)
+        // The sources are snapshotted before the build starts, so that changes made while it is running are picked
+        // up by the next build
+        SourceSnapshot sources = snapshot()
+        try {
+            runner.run()
+            sources.store(getSnapshotFile())
+        } finally {
+            for (ProcessRunner.Step step : runner.steps) {
+                if (step.wallTime >= 0) {
+                    logger.lifecycle(String.format("%s took %.1f seconds.", step.name, step.wallTime / 1000.0))
+                }
+            }
         }
     }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.internal.emulator;
+
+import com.google.common.base.Joiner;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a set of external commands, each of which may depend on others.
+ *
+ * <p>A step is started as soon as the steps it depends on have finished, so independent steps run at the same time, up
+ * to the given limit. The output of each step is logged line by line as it is produced, and only the last lines are
+ * kept, so that they can be reported if the step fails. The first step to exit with a non-zero value stops the run:
+ * the steps which are still running are destroyed and no more steps are started.</p>
+ */
+class ProcessRunner {
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final Logger logger;
+    private final int maxParallelism;
+    private final int tailLines;
+    private final List<Step> steps = new ArrayList<Step>();
+
+    ProcessRunner(Logger logger, int maxParallelism, int tailLines) {
+        this.logger = logger;
+        this.maxParallelism = maxParallelism;
+        this.tailLines = tailLines;
+    }
+
+    /**
+     * Adds a step which runs the given command line once all of the given steps have finished successfully.
+     */
+    Step add(String name, List<String> commandLine, Step... dependsOn) {
+        Step step = new Step(name, commandLine, Arrays.asList(dependsOn));
+        steps.add(step);
+        return step;
+    }
+
+    List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Runs all of the steps, and fails with the output of the first step to fail.
+     */
+    void run() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxParallelism));
+        CompletionService<Step> completion = new ExecutorCompletionService<Step>(executor);
+        Set<Step> pending = new LinkedHashSet<Step>(steps);
+        Set<Step> finished = new HashSet<Step>();
+        int running = 0;
+        try {
+            while (!pending.isEmpty() || running > 0) {
+                for (Iterator<Step> iterator = pending.iterator(); iterator.hasNext();) {
+                    Step step = iterator.next();
+                    if (finished.containsAll(step.dependsOn)) {
+                        iterator.remove();
+                        completion.submit(step);
+                        running++;
+                    }
+                }
+                // Steps can only depend on steps added before them, so something is always running here
+                try {
+                    finished.add(completion.take().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof GradleException) {
+                        throw (GradleException) e.getCause();
+                    }
+                    throw new GradleException("Could not run build step.", e.getCause());
+                } catch (InterruptedException e) {
+                    throw new GradleException("Interrupted while running build steps.", e);
+                }
+                running--;
+            }
+        } finally {
+            // Interrupts the steps which are still running, which destroy their processes
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A command to run, and the time it took once it has run.
+     */
+    class Step implements Callable<Step> {
+        private final String name;
+        private final List<String> commandLine;
+        private final List<Step> dependsOn;
+        private final OutputTail tail = new OutputTail(tailLines);
+        private long wallTime = -1;
+
+        Step(String name, List<String> commandLine, List<Step> dependsOn) {
+            this.name = name;
+            this.commandLine = new ArrayList<String>(commandLine);
+            this.dependsOn = dependsOn;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the time the step took to run in milliseconds, or -1 if it has not finished.
+         */
+        long getWallTime() {
+            return wallTime;
+        }
+
+        @Override
+        public Step call() throws Exception {
+            logger.info(String.format("Running %s: %s", name, Joiner.on(' ').join(commandLine)));
+            long start = System.nanoTime();
+            Process process;
+            try {
+                process = new ProcessBuilder(commandLine).start();
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not start %s.", name), e);
+            }
+
+            Thread stdout = pump(process.getInputStream(), LogLevel.INFO, "stdout");
+            Thread stderr = pump(process.getErrorStream(), LogLevel.ERROR, "stderr");
+            int exitValue;
+            try {
+                process.getOutputStream().close();
+                exitValue = process.waitFor();
+                stdout.join();
+                stderr.join();
+            } catch (InterruptedException e) {
+                process.destroy();
+                throw e;
+            }
+            wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.info(String.format("Finished %s in %.1f seconds.", name, wallTime / 1000.0));
+
+            if (exitValue != 0) {
+                throw new GradleException(String.format("%s failed with exit value %d. Last lines of output:%n%s",
+                        name, exitValue, tail));
+            }
+            return this;
+        }
+
+        private Thread pump(final InputStream stream, final LogLevel level, String streamName) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Reader reader = new BufferedReader(new InputStreamReader(stream));
+                        try {
+                            StringBuilder line = new StringBuilder();
+                            String text;
+                            while ((text = readLine(reader, line)) != null) {
+                                tail.add(text);
+                                logger.log(level, text);
+                            }
+                        } finally {
+                            reader.close();
+                        }
+                    } catch (IOException e) {
+                        // The process has been destroyed
+                    }
+                }
+            }, name + " " + streamName);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+    }
+
+    /**
+     * Reads one line, truncating it at {@link #MAX_LINE_LENGTH} characters so that a process writing without line
+     * breaks cannot use up the heap.
+     *
+     * @return The line, or null at the end of the stream.
+     */
+    private static String readLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean truncated = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n') {
+                break;
+            }
+            if (line.length() < MAX_LINE_LENGTH) {
+                line.append((char) c);
+            } else {
+                truncated = true;
+            }
+        }
+        if (c < 0 && line.length() == 0) {
+            return null;
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return truncated ? line.append(" [truncated]").toString() : line.toString();
+    }
+
+    /**
+     * The last lines written by a step, to both of its output streams.
+     */
+    private static class OutputTail {
+        private final int capacity;
+        private final Deque<String> lines = new ArrayDeque<String>();
+
+        OutputTail(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        synchronized void add(String line) {
+            if (lines.size() == capacity) {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return Joiner.on(String.format("%n")).join(lines);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.internal.emulator;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.FileVisitDetails;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The content hashes of a set of source files, by relative path.
+ *
+ * <p>The length and modification time of each file are kept with its hash, so that a new snapshot only reads the files
+ * which have been touched since the previous one. A file which has been touched but not changed still has the same
+ * hash, and so does not count as a change.</p>
+ */
+class SourceSnapshot {
+    private static final int VERSION = 1;
+
+    private final Map<String, Entry> entries;
+
+    private SourceSnapshot(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the snapshot stored in the given file. Returns an empty snapshot if the file is missing or was written by
+     * another version of this class.
+     */
+    static SourceSnapshot load(File file) {
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        if (!file.isFile()) {
+            return new SourceSnapshot(entries);
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (input.readInt() != VERSION) {
+                    return new SourceSnapshot(entries);
+                }
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = input.readUTF();
+                    long length = input.readLong();
+                    long lastModified = input.readLong();
+                    byte[] hash = new byte[input.readUnsignedByte()];
+                    input.readFully(hash);
+                    entries.put(path, new Entry(length, lastModified, HashCode.fromBytes(hash)));
+                }
+            } finally {
+                input.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read source snapshot %s.", file), e);
+        }
+        return new SourceSnapshot(entries);
+    }
+
+    void store(File file) {
+        try {
+            Files.createParentDirs(file);
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                output.writeInt(VERSION);
+                output.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().length);
+                    output.writeLong(entry.getValue().lastModified);
+                    byte[] hash = entry.getValue().hash.asBytes();
+                    output.writeByte(hash.length);
+                    output.write(hash);
+                }
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write source snapshot %s.", file), e);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the given files, hashing only those whose length or modification time differ from this
+     * snapshot.
+     */
+    SourceSnapshot update(FileTree files) {
+        final Map<String, Entry> updated = new HashMap<String, Entry>();
+        files.visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails details) {
+                String path = details.getRelativePath().getPathString();
+                long length = details.getSize();
+                long lastModified = details.getLastModified();
+                Entry entry = entries.get(path);
+                if (entry == null || entry.length != length || entry.lastModified != lastModified) {
+                    try {
+                        entry = new Entry(length, lastModified, Files.hash(details.getFile(), Hashing.sha1()));
+                    } catch (IOException e) {
+                        throw new GradleException(String.format("Could not hash %s.", details.getFile()), e);
+                    }
+                }
+                updated.put(path, entry);
+            }
+        });
+        return new SourceSnapshot(updated);
+    }
+
+    /**
+     * Returns the paths of the files which have been added, removed or changed since the given snapshot, in order.
+     */
+    List<String> changesSince(SourceSnapshot previous) {
+        Map<String, Entry> all = new TreeMap<String, Entry>(previous.entries);
+        all.putAll(entries);
+        List<String> changes = new ArrayList<String>();
+        for (String path : all.keySet()) {
+            Entry entry = entries.get(path);
+            Entry previousEntry = previous.entries.get(path);
+            if (entry == null || previousEntry == null || !entry.hash.equals(previousEntry.hash)) {
+                changes.add(path);
+            }
+        }
+        return changes;
+    }
+
+    private static class Entry {
+        final long length;
+        final long lastModified;
+        final HashCode hash;
+
+        Entry(long length, long lastModified, HashCode hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.internal.nativesetup
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCollection
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputFiles
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import org.gradle.process.ExecResult
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Task to run windRes on a set of resource files, using up to {@code maxParallelism} windRes
+ * processes at a time. When the task is executed incrementally, only the resources whose rc file
+ * or image folder has changed, or whose object file is missing, are compiled again.
+ */
+class WindResBatchTask extends DefaultTask {
+
+    File winResExe
+
+    int maxParallelism = Runtime.runtime.availableProcessors()
+
+    final List<Resource> resources = []
+
+    static class Resource {
+        File rcFile
+        File imageFolder
+        File objFile
+
+        boolean dependsOn(File file) {
+            return file == rcFile || file.path.startsWith(imageFolder.path + File.separator)
+        }
+    }
+
+    void resource(Object rcFile, Object imageFolder, Object objFile) {
+        resources << new Resource(
+                rcFile: project.file(rcFile),
+                imageFolder: project.file(imageFolder),
+                objFile: project.file(objFile))
+    }
+
+    /**
+     * The rc file, image folder and object file of each resource, so that the task is run again
+     * when they are paired up differently.
+     */
+    @Input
+    List<String> getResourcePaths() {
+        return resources.collect { Resource resource ->
+            "$resource.rcFile.path:$resource.imageFolder.path:$resource.objFile.path".toString()
+        }
+    }
+
+    @InputFiles
+    FileCollection getRcFiles() {
+        return project.files(resources*.rcFile)
+    }
+
+    @InputFiles
+    FileCollection getImageFolders() {
+        return project.files(resources*.imageFolder)
+    }
+
+    @OutputFiles
+    FileCollection getObjFiles() {
+        return project.files(resources*.objFile)
+    }
+
+    @TaskAction
+    void windres(IncrementalTaskInputs inputs) {
+        List<Resource> outOfDate
+        if (inputs.incremental) {
+            List<File> changed = []
+            inputs.outOfDate { InputFileDetails details ->
+                changed << details.file
+            }
+            inputs.removed { InputFileDetails details ->
+                changed << details.file
+            }
+            outOfDate = resources.findAll { Resource resource ->
+                !resource.objFile.exists() || changed.any { File file -> resource.dependsOn(file) }
+            }
+        } else {
+            outOfDate = resources
+        }
+        if (outOfDate.empty) {
+            return
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxParallelism, outOfDate.size()))
+        try {
+            Map<Resource, Future<?>> results = [:]
+            for (resource in outOfDate) {
+                Resource current = resource
+                results[current] = executor.submit({ compile(current) } as Callable)
+            }
+            results.each { Resource resource, Future<?> result ->
+                try {
+                    result.get()
+                } catch (ExecutionException e) {
+                    throw new GradleException("Unable to run windres on $resource.rcFile.", e.cause)
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    void compile(Resource resource) {
+        resource.objFile.parentFile.mkdirs()
+        // The output of each process is collected, so that it is not interleaved with the others
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        ExecResult result = project.exec {
+            executable = getWinResExe()
+            args resource.rcFile
+            args '-I'
+            args resource.imageFolder
+            args '-o'
+            args resource.objFile
+            standardOutput = output
+            errorOutput = output
+            ignoreExitValue = true
+        }
+        if (output.size() > 0) {
+            logger.lifecycle(output.toString())
+        }
+        if (result.exitValue != 0) {
+            throw new GradleException("windres finished with exit value $result.exitValue.")
+        }
+    }
+}
@@ -97,12 +97,33 @@ class WindowsSetupPlugin implements Plugin<Project> {
 
             WindResTask task = project.tasks.create(taskName, WindResTask)
 
-            task.winResExe = project.file("$project.rootDir/../prebuilts/gcc/linux-x86/host/x86_64-w64-mingw32-4.8/bin/x86_64-w64-mingw32-windres")
+            task.winResExe = getWinResExe()
             task.rcFile = project.file(rcPath)
             task.imageFolder = project.file(imageFolderPath)
             task.objFile = project.file("$project.buildDir/windres/$objName")
 
             return task
         }
+
+        /**
+         * Creates a task which compiles many resources at once, running windres in parallel.
+         * Resources are added with {@link #addResource}.
+         */
+        public WindResBatchTask createBatchTask(String taskName) {
+            WindResBatchTask task = project.tasks.create(taskName, WindResBatchTask)
+            task.winResExe = getWinResExe()
+            return task
+        }
+
+        public void addResource(WindResBatchTask task,
+                String rcPath,
+                String imageFolderPath,
+                String objName) {
+            task.resource(rcPath, imageFolderPath, "$project.buildDir/windres/$objName")
+        }
+
+        File getWinResExe() {
+            return project.file("$project.rootDir/../prebuilts/gcc/linux-x86/host/x86_64-w64-mingw32-4.8/bin/x86_64-w64-mingw32-windres")
+        }
     }
 }
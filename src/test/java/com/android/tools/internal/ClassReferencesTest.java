@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.internal;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+public class ClassReferencesTest extends TestCase {
+
+    public void testReadsReferencedClasses() throws IOException {
+        Set<String> references = read(ReferencesFixture.class).classes;
+
+        assertTrue(references.contains(ReferencesFixture.class.getName()));
+        // Super types
+        assertTrue(references.contains("java.util.AbstractList"));
+        assertTrue(references.contains("java.lang.Runnable"));
+        // Field descriptors and generic signatures
+        assertTrue(references.contains("java.util.concurrent.atomic.AtomicLong"));
+        assertTrue(references.contains("java.util.Map"));
+        assertTrue(references.contains("java.io.File"));
+        // Method bodies, including array element types
+        assertTrue(references.contains("java.lang.StringBuilder"));
+        assertTrue(references.contains("java.util.regex.Pattern"));
+        // Nested classes
+        assertTrue(references.contains(ReferencesFixture.Nested.class.getName()));
+
+        assertFalse(references.contains("java.util.HashMap"));
+        for (String reference : references) {
+            assertFalse(reference, reference.startsWith("["));
+            assertFalse(reference, reference.contains("/"));
+        }
+    }
+
+    public void testReadsSuperClassAndModifiers() throws IOException {
+        ClassReferences fixture = read(ReferencesFixture.class);
+        assertEquals("java.util.AbstractList", fixture.superClass);
+        assertFalse(fixture.isAbstract);
+        assertFalse(fixture.hasTestAnnotations);
+
+        ClassReferences test = read(ClassReferencesTest.class);
+        assertEquals("junit.framework.TestCase", test.superClass);
+
+        assertTrue(read(AbstractList.class).isAbstract);
+        assertTrue(read(Runnable.class).isAbstract);
+        assertNull(read(Object.class).superClass);
+    }
+
+    public void testRejectsOtherFiles() {
+        try {
+            ClassReferences.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a class file.", e.getMessage());
+        }
+    }
+
+    public void testFindsTopLevelClass() {
+        assertEquals("com.example.Foo", ClassReferences.topLevelClass("com.example.Foo"));
+        assertEquals("com.example.Foo", ClassReferences.topLevelClass("com.example.Foo$Bar$1"));
+    }
+
+    private static ClassReferences read(Class<?> type) throws IOException {
+        InputStream classFile = type.getResourceAsStream(type.getSimpleName() + ".class");
+        try {
+            return ClassReferences.read(classFile);
+        } finally {
+            classFile.close();
+        }
+    }
+}
+
+/**
+ * Refers to classes in each of the ways a class file can, and has long and double constants, which
+ * take up two entries of the constant pool.
+ */
+class ReferencesFixture extends AbstractList<String> implements Runnable {
+    static class Nested {
+    }
+
+    private final AtomicLong counter = new AtomicLong(1234567890123L);
+    private Map<String, File> files;
+    private double ratio = 0.123456789;
+
+    @Override
+    public String get(int index) {
+        return new StringBuilder().append(index).append(ratio).toString();
+    }
+
+    @Override
+    public int size() {
+        return (int) counter.get();
+    }
+
+    @Override
+    public void run() {
+        Pattern[] patterns = new Pattern[files.size()];
+        new Nested();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.internal;
+
+import junit.framework.TestCase;
+
+public class PathTrieTest extends TestCase {
+
+    public void testFindsDeepestDirectory() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.put("/base/foo", "foo");
+        trie.put("/base/foo/nested", "nested");
+
+        assertEquals("foo", trie.find("/base/foo/src/A.java"));
+        assertEquals("nested", trie.find("/base/foo/nested/src/A.java"));
+        assertEquals("foo", trie.find("/base/foo/nestedother/A.java"));
+        assertNull(trie.find("/base/A.java"));
+        assertNull(trie.find("/other/foo/A.java"));
+    }
+
+    public void testMatchesWholeNames() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.put("/base/foo", "foo");
+        trie.put("/base/foobar", "foobar");
+
+        assertEquals("foo", trie.find("/base/foo/A.java"));
+        assertEquals("foobar", trie.find("/base/foobar/A.java"));
+        assertNull(trie.find("/base/foob/A.java"));
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.internal;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class TestImpactIndexTest extends TestCase {
+
+    private static final long BEFORE = System.currentTimeMillis() - 60000;
+
+    private File tempDir;
+    private File testClassesDir;
+    private File classesDir;
+    private File sourceFile;
+    private List<File> sourceFiles;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+        testClassesDir = new File(tempDir, "test-classes");
+        classesDir = new File(tempDir, "classes");
+        copyClass(ImpactFixtureCase.class, testClassesDir);
+        copyClass(UnrelatedFixtureCase.class, testClassesDir);
+        copyClass(ImpactFixtureHelper.class, testClassesDir);
+        copyClass(AbstractFixtureCase.class, testClassesDir);
+        copyClass(InheritedFixtureCase.class, testClassesDir);
+        copyClass(ClassReferencesTest.class, testClassesDir);
+        copyClass(ImpactFixture.class, classesDir);
+        sourceFile = new File(tempDir, "src/ImpactFixture.java");
+        Files.createParentDirs(sourceFile);
+        Files.touch(sourceFile);
+        sourceFile.setLastModified(BEFORE);
+        sourceFiles = Lists.newArrayList(sourceFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(tempDir);
+    }
+
+    public void testFindsTestsWhichDependOnChangedClasses() throws IOException {
+        TestImpactIndex index = TestImpactIndex.build(testClassesDir, classpath(), sourceFiles);
+
+        assertEquals(ImmutableSet.of(ImpactFixtureCase.class.getName(), InheritedFixtureCase.class.getName()),
+                index.findTests(ImmutableSet.of(ImpactFixture.class.getName())));
+        assertEquals(ImmutableSet.of(UnrelatedFixtureCase.class.getName()),
+                index.findTests(ImmutableSet.of(UnrelatedFixtureCase.class.getName())));
+        // Classes outside the search path are not followed
+        assertTrue(index.findTests(ImmutableSet.of("java.lang.StringBuilder")).isEmpty());
+    }
+
+    public void testRecordsWhichClassesAreTests() throws IOException {
+        TestImpactIndex index = TestImpactIndex.build(testClassesDir, classpath(), sourceFiles);
+
+        assertTrue(index.isTest(ClassReferencesTest.class.getName()));
+        assertTrue(index.isTest(ImpactFixtureCase.class.getName()));
+        assertTrue(index.isTest(InheritedFixtureCase.class.getName()));
+        assertFalse(index.isTest(AbstractFixtureCase.class.getName()));
+        assertFalse(index.isTest(ImpactFixtureHelper.class.getName()));
+        assertTrue(index.contains(ImpactFixtureHelper.class.getName()));
+        assertFalse(index.contains(ImpactFixture.class.getName()));
+    }
+
+    public void testReadsWrittenIndex() throws IOException {
+        File indexFile = new File(tempDir, "index/impact-index.txt");
+        TestImpactIndex.build(testClassesDir, classpath(), sourceFiles).write(indexFile);
+
+        TestImpactIndex index = TestImpactIndex.read(indexFile);
+
+        assertEquals(ImmutableSet.of(ImpactFixtureCase.class.getName(), InheritedFixtureCase.class.getName()),
+                index.findTests(ImmutableSet.of(ImpactFixture.class.getName())));
+        assertTrue(index.isTest(ImpactFixtureCase.class.getName()));
+        assertFalse(index.isTest(ImpactFixtureHelper.class.getName()));
+        assertTrue(index.contains(ImpactFixtureHelper.class.getName()));
+        assertTrue(index.isUpToDate(classpath(), sourceFiles, Collections.<String>emptySet()));
+    }
+
+    public void testReadsMissingIndexAsNull() throws IOException {
+        assertNull(TestImpactIndex.read(new File(tempDir, "missing.txt")));
+    }
+
+    public void testIsOutOfDateOnceClassesAreCompiledAgain() throws IOException {
+        TestImpactIndex index = TestImpactIndex.build(testClassesDir, classpath(), sourceFiles);
+        assertTrue(index.isUpToDate(classpath(), sourceFiles, Collections.<String>emptySet()));
+
+        classFile(ImpactFixture.class, classesDir).setLastModified(System.currentTimeMillis() + 60000);
+
+        assertFalse(index.isUpToDate(classpath(), sourceFiles, Collections.<String>emptySet()));
+    }
+
+    public void testIsOutOfDateOnceSourcesOutsideTheChangeDiffer() throws IOException {
+        TestImpactIndex index = TestImpactIndex.build(testClassesDir, classpath(), sourceFiles);
+
+        sourceFile.setLastModified(BEFORE + 10000);
+        Set<String> changedFiles = ImmutableSet.of(sourceFile.getAbsolutePath());
+
+        assertFalse(index.isUpToDate(classpath(), sourceFiles, Collections.<String>emptySet()));
+        assertTrue(index.isUpToDate(classpath(), sourceFiles, changedFiles));
+    }
+
+    public void testIsOutOfDateOnceSourcesOutsideTheChangeAreAdded() throws IOException {
+        TestImpactIndex index = TestImpactIndex.build(testClassesDir, classpath(), sourceFiles);
+
+        File newSourceFile = new File(tempDir, "src/NewFixture.java");
+        Files.touch(newSourceFile);
+        sourceFiles.add(newSourceFile);
+
+        assertFalse(index.isUpToDate(classpath(), sourceFiles, Collections.<String>emptySet()));
+        assertTrue(index.isUpToDate(classpath(), sourceFiles,
+                ImmutableSet.of(newSourceFile.getAbsolutePath())));
+    }
+
+    private List<File> classpath() {
+        return Lists.newArrayList(classesDir);
+    }
+
+    private static File classFile(Class<?> type, File classesDir) {
+        return new File(classesDir, type.getName().replace('.', '/') + ".class");
+    }
+
+    private static void copyClass(Class<?> type, File classesDir) throws IOException {
+        File file = classFile(type, classesDir);
+        Files.createParentDirs(file);
+        InputStream input = type.getResourceAsStream(type.getSimpleName() + ".class");
+        try {
+            Files.write(ByteStreams.toByteArray(input), file);
+        } finally {
+            input.close();
+        }
+        file.setLastModified(BEFORE);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
+
+class ImpactFixture {
+    int value() {
+        return 1;
+    }
+}
+
+/**
+ * Stands in for a test base class from outside the build. It is not copied into the test classes
+ * of the index, so the classes which extend it are taken to be tests, without being tests which
+ * this build would run.
+ */
+class FixtureBase {
+}
+
+class ImpactFixtureCase extends FixtureBase {
+    int check() {
+        return new ImpactFixture().value();
+    }
+}
+
+class UnrelatedFixtureCase extends FixtureBase {
+    String check() {
+        return new StringBuilder().append(1).toString();
+    }
+}
+
+class ImpactFixtureHelper {
+    int value() {
+        return new ImpactFixture().value();
+    }
+}
+
+abstract class AbstractFixtureCase extends FixtureBase {
+    int check() {
+        return new ImpactFixtureHelper().value();
+    }
+}
+
+class InheritedFixtureCase extends AbstractFixtureCase {
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.internal.nativesetup;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import junit.framework.TestCase;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+import org.gradle.testfixtures.ProjectBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class WindResBatchTaskTest extends TestCase {
+
+    private File tempDir;
+    private File logFile;
+    private File concurrencyFile;
+    private WindResBatchTask task;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+        logFile = new File(tempDir, "windres.log");
+        concurrencyFile = new File(tempDir, "concurrency.log");
+        Project project = ProjectBuilder.builder().withProjectDir(tempDir).build();
+        task = project.getTasks().create("windres", WindResBatchTask.class);
+        task.setWinResExe(writeFakeWindRes());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(tempDir);
+    }
+
+    public void testCompilesResourcesInParallel() throws IOException {
+        if (isWindows()) {
+            return;
+        }
+        addResource("a");
+        addResource("b");
+        addResource("c");
+        task.setMaxParallelism(3);
+        Files.write("3", new File(tempDir, "expected"), Charsets.UTF_8);
+
+        task.windres(new FakeInputs(false));
+
+        assertEquals(3, Files.readLines(logFile, Charsets.UTF_8).size());
+        for (String name : Arrays.asList("a", "b", "c")) {
+            assertEquals("compiled " + name + ".rc", Files.toString(objFile(name), Charsets.UTF_8).trim());
+        }
+        // Each process waits for the others to start, so they all ran at the same time
+        assertEquals(Arrays.asList("3", "3", "3"), Files.readLines(concurrencyFile, Charsets.UTF_8));
+    }
+
+    public void testPassesResourceArguments() throws IOException {
+        if (isWindows()) {
+            return;
+        }
+        addResource("a");
+
+        task.windres(new FakeInputs(false));
+
+        assertEquals(Collections.singletonList(String.format("%s -I %s -o %s",
+                rcFile("a"), imageFolder("a"), objFile("a"))),
+                Files.readLines(logFile, Charsets.UTF_8));
+    }
+
+    public void testReportsNonZeroExitValue() throws IOException {
+        if (isWindows()) {
+            return;
+        }
+        addResource("a");
+        addResource("fail");
+
+        try {
+            task.windres(new FakeInputs(false));
+            fail();
+        } catch (GradleException e) {
+            assertEquals(String.format("Unable to run windres on %s.", rcFile("fail")), e.getMessage());
+            assertEquals("windres finished with exit value 3.", e.getCause().getMessage());
+        }
+    }
+
+    public void testIncrementalRunOnlyCompilesChangedResources() throws IOException {
+        if (isWindows()) {
+            return;
+        }
+        addResource("a");
+        addResource("b");
+        addResource("c");
+        task.windres(new FakeInputs(false));
+        assertEquals(3, Files.readLines(logFile, Charsets.UTF_8).size());
+
+        logFile.delete();
+        task.windres(new FakeInputs(true, new File(imageFolder("b"), "icon.ico")));
+        assertEquals(Collections.singletonList(rcFile("b").getPath()), compiledRcFiles());
+
+        logFile.delete();
+        task.windres(new FakeInputs(true, rcFile("c")));
+        assertEquals(Collections.singletonList(rcFile("c").getPath()), compiledRcFiles());
+
+        logFile.delete();
+        objFile("a").delete();
+        task.windres(new FakeInputs(true));
+        assertEquals(Collections.singletonList(rcFile("a").getPath()), compiledRcFiles());
+    }
+
+    private void addResource(String name) throws IOException {
+        Files.createParentDirs(rcFile(name));
+        Files.write(name, rcFile(name), Charsets.UTF_8);
+        imageFolder(name).mkdirs();
+        task.resource(rcFile(name), imageFolder(name), objFile(name));
+    }
+
+    private File rcFile(String name) {
+        return new File(tempDir, "src/" + name + ".rc");
+    }
+
+    private File imageFolder(String name) {
+        return new File(tempDir, "images/" + name);
+    }
+
+    private File objFile(String name) {
+        return new File(tempDir, "build/windres/" + name + ".o");
+    }
+
+    private List<String> compiledRcFiles() throws IOException {
+        List<String> rcFiles = new ArrayList<String>();
+        for (String line : Files.readLines(logFile, Charsets.UTF_8)) {
+            rcFiles.add(line.substring(0, line.indexOf(" -I ")));
+        }
+        return rcFiles;
+    }
+
+    /**
+     * Writes a script which records its arguments and writes the object file. It waits, for up to
+     * a few seconds, until as many processes are running as the test expects, and records how many
+     * it saw. It fails for any rc file named fail.rc.
+     */
+    private File writeFakeWindRes() throws IOException {
+        File script = new File(tempDir, "windres.sh");
+        File runningDir = new File(tempDir, "running");
+        runningDir.mkdirs();
+        String content = "#!/bin/sh\n"
+                + "echo \"$*\" >> '" + logFile + "'\n"
+                + "touch '" + runningDir + "'/$$\n"
+                + "expected=$(cat '" + tempDir + "/expected' 2>/dev/null || echo 1)\n"
+                + "i=0\n"
+                + "while [ $(ls '" + runningDir + "' | wc -l) -lt $expected ] && [ $i -lt 30 ]; do\n"
+                + "  sleep 0.1\n"
+                + "  i=$((i + 1))\n"
+                + "done\n"
+                + "echo $(ls '" + runningDir + "' | wc -l) >> '" + concurrencyFile + "'\n"
+                + "sleep 0.2\n"
+                + "rm '" + runningDir + "'/$$\n"
+                + "case \"$1\" in\n"
+                + "  */fail.rc) echo 'bad resource' >&2; exit 3;;\n"
+                + "esac\n"
+                + "for arg; do obj=$arg; done\n"
+                + "echo \"compiled $(basename \"$1\")\" > \"$obj\"\n";
+        Files.write(content, script, Charsets.UTF_8);
+        script.setExecutable(true);
+        return script;
+    }
+
+    private static boolean isWindows() {
+        return File.separatorChar == '\\';
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class FakeInputs implements IncrementalTaskInputs {
+        private final boolean incremental;
+        private final List<File> outOfDate;
+
+        FakeInputs(boolean incremental, File... outOfDate) {
+            this.incremental = incremental;
+            this.outOfDate = Arrays.asList(outOfDate);
+        }
+
+        @Override
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        @Override
+        public void outOfDate(Action<? super InputFileDetails> action) {
+            for (final File file : outOfDate) {
+                action.execute(new InputFileDetails() {
+                    public boolean isAdded() {
+                        return false;
+                    }
+
+                    public boolean isModified() {
+                        return true;
+                    }
+
+                    public boolean isRemoved() {
+                        return false;
+                    }
+
+                    public File getFile() {
+                        return file;
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void removed(Action<? super InputFileDetails> action) {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs;
+
+import junit.framework.TestCase;
+import org.gradle.build.docs.ElementTransformPipeline.ElementHandler;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ElementTransformPipelineTest extends TestCase {
+
+    private final List<String> handled = new ArrayList<String>();
+
+    public void testAppliesHandlersInDocumentOrder() throws Exception {
+        Document document = parse("<book><sample id='1'><sample id='2'/></sample><para/><sample id='3'/></book>");
+
+        new ElementTransformPipeline()
+                .add("sample", record("sample"))
+                .add("para", record("para"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("sample:1", "sample:2", "para:", "sample:3"), handled);
+    }
+
+    public void testAppliesHandlersForAnElementInRegistrationOrder() throws Exception {
+        Document document = parse("<book><sample id='1' condition='x'/></book>");
+
+        new ElementTransformPipeline()
+                .add("sample", record("first"))
+                .add("@condition", record("condition"))
+                .add("sample", record("last"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("first:1", "condition:1", "last:1"), handled);
+    }
+
+    public void testAppliesRemainingHandlersAndVisitsChildrenOfReplacement() throws Exception {
+        final Document document = parse("<book><sample id='1'><para id='old'/></sample></book>");
+
+        new ElementTransformPipeline()
+                .add("sample", new ElementHandler() {
+                    public Element handle(Element element) {
+                        Element replacement = document.createElement("example");
+                        replacement.setAttribute("id", "2");
+                        Element child = document.createElement("para");
+                        child.setAttribute("id", "new");
+                        replacement.appendChild(child);
+                        element.getParentNode().replaceChild(replacement, element);
+                        return replacement;
+                    }
+                })
+                .add("sample", record("sample"))
+                .add("example", record("example"))
+                .add("para", record("para"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("example:2", "para:new"), handled);
+    }
+
+    public void testStopsAtRemovedElement() throws Exception {
+        Document document = parse("<book><sample id='1' condition='x'><para id='2'/></sample><para id='3'/></book>");
+
+        new ElementTransformPipeline()
+                .add("@condition", new ElementHandler() {
+                    public Element handle(Element element) {
+                        element.getParentNode().removeChild(element);
+                        return null;
+                    }
+                })
+                .add("sample", record("sample"))
+                .add("para", record("para"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("para:3"), handled);
+        assertEquals(1, document.getElementsByTagName("para").getLength());
+    }
+
+    public void testAppliesHandlerForDepthOnlyToElementsAtThatDepth() throws Exception {
+        Document document = parse("<book><bookinfo id='1'/><chapter><bookinfo id='2'/></chapter></book>");
+
+        new ElementTransformPipeline()
+                .add("bookinfo", 1, record("bookinfo"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("bookinfo:1"), handled);
+    }
+
+    public void testAppliesAfterChildrenHandlersOnceChildrenHaveBeenVisited() throws Exception {
+        Document document = parse("<book><programlisting id='1'><para id='2'/></programlisting></book>");
+
+        new ElementTransformPipeline()
+                .addAfterChildren("programlisting", record("after"))
+                .add("programlisting", record("before"))
+                .add("para", record("para"))
+                .transform(document.getDocumentElement());
+
+        assertEquals(Arrays.asList("before:1", "para:2", "after:1"), handled);
+    }
+
+    public void testTransformsApiLinkInsideProgramListingBeforeNormalisingIt() throws Exception {
+        final Document document = parse("<book><programlisting>\tdef x = new <apilink class='org.gradle.Foo'/>()\n</programlisting></book>");
+
+        new ElementTransformPipeline()
+                .add("apilink", new ElementHandler() {
+                    public Element handle(Element element) {
+                        Element replacement = document.createElement("classname");
+                        replacement.appendChild(document.createTextNode("Foo"));
+                        element.getParentNode().replaceChild(replacement, element);
+                        return replacement;
+                    }
+                })
+                .addAfterChildren("programlisting", new ElementHandler() {
+                    public Element handle(Element element) {
+                        element.setTextContent(element.getTextContent().trim());
+                        return element;
+                    }
+                })
+                .transform(document.getDocumentElement());
+
+        assertEquals("def x = new Foo()", document.getElementsByTagName("programlisting").item(0).getTextContent());
+    }
+
+    private ElementHandler record(final String name) {
+        return new ElementHandler() {
+            public Element handle(Element element) {
+                handled.add(name + ":" + element.getAttribute("id"));
+                return element;
+            }
+        };
+    }
+
+    private static Document parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+                new ByteArrayInputStream(xml.getBytes("UTF-8")));
+    }
+}
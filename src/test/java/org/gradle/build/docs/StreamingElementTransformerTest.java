@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.build.docs;
+
+import junit.framework.TestCase;
+import org.gradle.build.docs.ElementTransformPipeline.ElementHandler;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+/**
+ * Checks that streaming a document through a pipeline transforms its elements the same way as transforming the parsed
+ * document does. The handlers mirror the user guide transforms of {@link UserGuideTransformTask}.
+ */
+public class StreamingElementTransformerTest extends TestCase {
+
+    private static final String USER_GUIDE = "<?xml version='1.0' encoding='UTF-8'?>\n"
+            + "<book>\n"
+            + "  <bookinfo><title>User Guide</title></bookinfo>\n"
+            + "  <chapter id='intro'>\n"
+            + "    <title>Introduction</title>\n"
+            + "    <para>See <apilink class='org.gradle.api.Project'/> and"
+            + " <ulink url='website:documentation.html'>the site</ulink>.</para>\n"
+            + "    <para condition='standalone'>Only in the standalone guide.</para>\n"
+            + "    <sample id='hello' dir='userguide/tutorial/hello' title='Hello'>\n"
+            + "      <sourcefile file='build.gradle'/>\n"
+            + "      <output args='-q hello'/>\n"
+            + "    </sample>\n"
+            + "    <!-- A comment which is kept -->\n"
+            + "    <programlisting>\tdef project = new <apilink class='org.gradle.api.Project'/>()\n</programlisting>\n"
+            + "    <section id='nested'>\n"
+            + "      <bookinfo><title>Not the book's</title></bookinfo>\n"
+            + "      <screen><![CDATA[  > gradle hello  ]]></screen>\n"
+            + "      <para>Text with <emphasis>markup</emphasis> &amp; an entity.</para>\n"
+            + "    </section>\n"
+            + "  </chapter>\n"
+            + "</book>\n";
+
+    public void testStreamingTransformsElementsLikeTheDomPipeline() throws Exception {
+        String streamed = serialize(parse(stream(USER_GUIDE)));
+        String transformed = serialize(transformDom(USER_GUIDE));
+
+        assertEquals(transformed, streamed);
+        assertTrue(transformed.contains("<releaseinfo>1.0</releaseinfo>"));
+        assertTrue(transformed.contains("<example id=\"hello\">"));
+        assertTrue(transformed.contains("<programlisting>def project = new Project()</programlisting>"));
+        assertTrue(transformed.contains("<ulink url=\"http://www.gradle.org/documentation.html\">"));
+        assertFalse(transformed.contains("condition"));
+        assertFalse(transformed.contains("apilink"));
+    }
+
+    private static Document transformDom(String xml) throws Exception {
+        Document document = parse(xml.getBytes("UTF-8"));
+        pipeline(document).transform(document.getDocumentElement());
+        return document;
+    }
+
+    private static byte[] stream(String xml) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output, "UTF-8");
+        try {
+            StreamingElementTransformer handler = new StreamingElementTransformer(pipeline(document), document, writer);
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            SAXParser parser = parserFactory.newSAXParser();
+            parser.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+            parser.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), handler);
+        } finally {
+            writer.close();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns a pipeline with the same shape as the one the user guide is transformed with, creating its elements in
+     * the given document.
+     */
+    private static ElementTransformPipeline pipeline(final Document document) {
+        return new ElementTransformPipeline()
+                .add("bookinfo", 1, new ElementHandler() {
+                    public Element handle(Element element) {
+                        Element releaseInfo = document.createElement("releaseinfo");
+                        releaseInfo.appendChild(document.createTextNode("1.0"));
+                        element.appendChild(releaseInfo);
+                        return element;
+                    }
+                })
+                .add("@condition", new ElementHandler() {
+                    public Element handle(Element element) {
+                        element.getParentNode().removeChild(element);
+                        return null;
+                    }
+                })
+                .add("sample", new ElementHandler() {
+                    public Element handle(Element element) {
+                        Element example = document.createElement("example");
+                        example.setAttribute("id", element.getAttribute("id"));
+                        Element title = document.createElement("title");
+                        title.appendChild(document.createTextNode(element.getAttribute("title")));
+                        example.appendChild(title);
+                        Element programListing = document.createElement("programlisting");
+                        programListing.setAttribute("language", "java");
+                        programListing.appendChild(document.createTextNode("\n\ttask hello\n"));
+                        example.appendChild(programListing);
+                        Element screen = document.createElement("screen");
+                        screen.appendChild(document.createTextNode("> gradle -q hello\nHello world!\n"));
+                        example.appendChild(screen);
+                        element.getParentNode().insertBefore(example, element);
+                        element.getParentNode().removeChild(element);
+                        return example;
+                    }
+                })
+                .add("apilink", new ElementHandler() {
+                    public Element handle(Element element) {
+                        String className = element.getAttribute("class");
+                        Element replacement = document.createElement("classname");
+                        replacement.appendChild(document.createTextNode(className.substring(className.lastIndexOf('.') + 1)));
+                        element.getParentNode().replaceChild(replacement, element);
+                        return replacement;
+                    }
+                })
+                .add("ulink", new ElementHandler() {
+                    public Element handle(Element element) {
+                        String url = element.getAttribute("url");
+                        if (url.startsWith("website:")) {
+                            element.setAttribute("url", "http://www.gradle.org/" + url.substring(8));
+                        }
+                        return element;
+                    }
+                })
+                .addAfterChildren("programlisting", normalise())
+                .addAfterChildren("screen", normalise());
+    }
+
+    private static ElementHandler normalise() {
+        return new ElementHandler() {
+            public Element handle(Element element) {
+                element.setTextContent(element.getTextContent().trim().replace("\t", "    ").replace("\r\n", "\n"));
+                return element;
+            }
+        };
+    }
+
+    private static Document parse(byte[] xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    }
+
+    private static String serialize(Document document) throws Exception {
+        StringWriter writer = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(
+                new DOMSource(document.getDocumentElement()), new StreamResult(writer));
+        return writer.toString();
+    }
+}